@@ -7,6 +7,7 @@ import java.util.Random;
 import utils.Commands;
 import utils.DataAssembler;
 import utils.Datagram;
+import utils.DiceHand;
 import utils.DicesState;
 import utils.Exceptions.NextStateNotDefinedException;
 import utils.ParamNames;
@@ -53,11 +54,12 @@ public class AutomaticClient extends ClientManager{
         id = r.nextInt(MAX_ID) + 1;
         Datagram d = new Datagram.Builder()
                     .withType(Commands.STRT)
-                    .addParam(ParamNames.ID.name(), id)
+                    .addParam(ParamNames.ID, id)
                     .build();
         
         try {
             disassembler.disassembleDatagram(d);
+            disassembler.flush();
             gstate = ClientManager.GameState.STARTED;
         } catch (IOException ex) {
             System.out.println(ex.getMessage());
@@ -78,9 +80,9 @@ public class AutomaticClient extends ClientManager{
             if (gstate != ClientManager.GameState.STARTED && gstate != ClientManager.GameState.PASSED) {
                 throw new ActionNotAllowedException("Cash command not expected here");
             }
-            System.out.println("Your current cash is " + d.getParams().getIntParameter().get(ParamNames.COINS.name()));            
+            System.out.println("Your current cash is " + d.getParams().getInt(ParamNames.COINS));            
             ArrayList<Datagram> dg = new ArrayList<>();
-            if (games < MAX_GAMES && d.getParams().getIntParameter().get(ParamNames.COINS.name()) > 0) {
+            if (games < MAX_GAMES && d.getParams().getInt(ParamNames.COINS) > 0) {
                 Datagram.Builder db = new Datagram.Builder();
                 db.withType(Commands.BETT);
                 dg.add(db.build());
@@ -125,13 +127,14 @@ public class AutomaticClient extends ClientManager{
                     }
                     if (num_rolls < DataAssembler.MAX_ROLLS) {
                         boolean take = true;
-                        ArrayList<Integer> dPos = new ArrayList<>();
+                        int hand = d.getParams().getHand(ParamNames.DICES);
+                        int dPos = DiceHand.EMPTY;
                         while (take) {
                             take = false;
                             for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
-                                if (d.getParams().getArrayParameter().get(ParamNames.DICES.name()).get(i) == state.nextValue()) {
+                                if (DiceHand.get(hand, i) == state.nextValue()) {
                                     take = true;
-                                    dPos.add(i+1);
+                                    dPos = DiceHand.add(dPos, i+1);
                                     try {
                                         state = state.nextState();
                                     } catch (NextStateNotDefinedException ex) {
@@ -144,27 +147,27 @@ public class AutomaticClient extends ClientManager{
                         ArrayList<Datagram> dg = new ArrayList<>();
                         if (state == DicesState.CREW) {
                             int pnts = -(DicesState.CAPTAIN.getValue() + DicesState.CREW.getValue() + DicesState.SHIP.getValue());
-                            pnts += d.getParams().getArrayParameter().get(ParamNames.DICES.name()).stream().map((dice) -> dice).reduce(pnts, Integer::sum);
+                            pnts += pnts + DiceHand.sum(hand);
                             if ((points != -1 && pnts > points) || (points == -1 && pnts >= 7)) {
                                 Datagram.Builder db = new Datagram.Builder();
                                 db.withType(Commands.PASS);
-                                db.addParam(ParamNames.ID.name(), id);
+                                db.addParam(ParamNames.ID, id);
                                 dg.add(db.build());
                                 gstate = ClientManager.GameState.PASSED;
                             } 
                             else{
                                 Datagram.Builder db = new Datagram.Builder();
                                 db.withType(Commands.TAKE);
-                                db.addParam(ParamNames.ID.name(), id);
-                                db.addParam(ParamNames.DICES.name(), dPos);
+                                db.addParam(ParamNames.ID, id);
+                                db.addHand(ParamNames.DICES, dPos);
                                 dg.add(db.build());
                             }
                         }
                         else {
                             Datagram.Builder db = new Datagram.Builder();
                             db.withType(Commands.TAKE);
-                            db.addParam(ParamNames.ID.name(), id);
-                            db.addParam(ParamNames.DICES.name(), dPos);
+                            db.addParam(ParamNames.ID, id);
+                            db.addHand(ParamNames.DICES, dPos);
                             dg.add(db.build());
                         }
                         num_rolls++;
@@ -173,7 +176,7 @@ public class AutomaticClient extends ClientManager{
                     else {
                         System.out.print("Final dices: ");
                         for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
-                            System.out.print(d.getParams().getArrayParameter().get(ParamNames.DICES.name()).get(i) + " ");
+                            System.out.print(DiceHand.get(d.getParams().getHand(ParamNames.DICES), i) + " ");
                         }
                         System.out.println("");
                         gstate = ClientManager.GameState.PASSED;
@@ -185,7 +188,7 @@ public class AutomaticClient extends ClientManager{
                     ArrayList<Datagram> dg = new ArrayList<>();
                     Datagram.Builder db = new Datagram.Builder();
                     db.withType(Commands.ERRO);
-                    db.addParam(ParamNames.MESSAGE.name(), "Dice command not possible");
+                    db.addParam(ParamNames.MESSAGE, "Dice command not possible");
                     dg.add(db.build());
                     return dg;
             }
@@ -205,14 +208,14 @@ public class AutomaticClient extends ClientManager{
             if (gstate != ClientManager.GameState.DICE && gstate != ClientManager.GameState.PASSED) {
                 throw new ActionNotAllowedException("Pnts command not expected here");
             }
-            if(d.getParams().getIntParameter().get(ParamNames.ID.name()) == id) {
-                System.out.println("Your punctuation is " + d.getParams().getIntParameter().get(ParamNames.POINTS.name()));
+            if(d.getParams().getInt(ParamNames.ID) == id) {
+                System.out.println("Your punctuation is " + d.getParams().getInt(ParamNames.POINTS));
                 first_player = 1;
             }
             else {
-                System.out.println("Other player's punctuation is " + d.getParams().getIntParameter().get(ParamNames.POINTS.name()));
+                System.out.println("Other player's punctuation is " + d.getParams().getInt(ParamNames.POINTS));
                 first_player = 0;
-                points = d.getParams().getIntParameter().get(ParamNames.POINTS.name());
+                points = d.getParams().getInt(ParamNames.POINTS);
             }
             return null;
         }
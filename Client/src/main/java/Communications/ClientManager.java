@@ -100,7 +100,7 @@ public abstract class ClientManager {
         actions.put(Commands.ERRO, new ErroMenu());
         
         try {
-            ComUtils com = new ComUtils(socket);
+            ComUtils com = new ComUtils(socket, true);
             assembler =  new DataAssembler(com);
             disassembler =  new DataDisassembler(com);
             gstate = ClientManager.GameState.WAITING;
@@ -131,6 +131,7 @@ public abstract class ClientManager {
                     disassembler.disassembleDatagram(d_aux);
                     exit = (d_aux.getType() == Commands.EXIT);
                 }
+                disassembler.flush();
             }
             return exit;
         } catch (IOException ex1) {
@@ -140,7 +141,7 @@ public abstract class ClientManager {
             try {
                 Datagram d = new Datagram.Builder()
                     .withType(Commands.ERRO)
-                    .addParam(ParamNames.MESSAGE.name(), "Protocol error:" + ex2.getMessage())
+                    .addParam(ParamNames.MESSAGE, "Protocol error:" + ex2.getMessage())
                     .build();
                 disassembler.disassembleDatagram(d);
                 
@@ -148,6 +149,7 @@ public abstract class ClientManager {
                     .withType(Commands.EXIT)
                     .build();
                 disassembler.disassembleDatagram(d);
+                disassembler.flush();
                 return true;
             } catch (IOException ex) {
                 System.out.println(ex.getMessage());
@@ -191,7 +193,7 @@ public abstract class ClientManager {
             if (gstate != ClientManager.GameState.PLAYING) {
                 throw new ActionNotAllowedException("Loot command not expected here");
             }
-            System.out.println("The current loot of the game is " + d.getParams().getIntParameter().get(ParamNames.COINS.name()));
+            System.out.println("The current loot of the game is " + d.getParams().getInt(ParamNames.COINS));
             return null;
         }
     }
@@ -210,7 +212,7 @@ public abstract class ClientManager {
                 throw new ActionNotAllowedException("Play command not expected here");
             }
             System.out.print("The first player is ");
-            if (d.getParams().getIntParameter().get(ParamNames.PLAYER.name()) == 0) {
+            if (d.getParams().getInt(ParamNames.PLAYER) == 0) {
                 System.out.println("you");
                 first_player = 0;
             }
@@ -299,7 +301,7 @@ public abstract class ClientManager {
             if (gstate != ClientManager.GameState.PASSED) {
                 throw new ActionNotAllowedException("Dice command not expected here");
             }
-            switch (d.getParams().getIntParameter().get(ParamNames.WINNER.name())) {
+            switch (d.getParams().getInt(ParamNames.WINNER)) {
                 case 0:
                     System.out.println("You have won");
                     break;
@@ -324,7 +326,7 @@ public abstract class ClientManager {
     private class ErroMenu implements MenuCommand {
         @Override
         public ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException {
-            System.out.println(d.getParams().getStringParameter().get(ParamNames.MESSAGE.name()));
+            System.out.println(d.getParams().getString(ParamNames.MESSAGE));
             Datagram data = new Datagram.Builder()
                 .withType(Commands.EXIT)
                 .build();
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import utils.Commands;
 import utils.DataAssembler;
 import utils.Datagram;
+import utils.DiceHand;
 import java.util.Scanner;
 import utils.ParamNames;
 
@@ -54,10 +55,11 @@ public class TerminalClient extends ClientManager{
         
         Datagram d = new Datagram.Builder()
                     .withType(Commands.STRT)
-                    .addParam(ParamNames.ID.name(), id)
+                    .addParam(ParamNames.ID, id)
                     .build();
         try {
             disassembler.disassembleDatagram(d);
+            disassembler.flush();
             gstate = ClientManager.GameState.STARTED;
         } catch (IOException ex) {
             System.out.println(ex.getMessage());
@@ -85,7 +87,7 @@ public class TerminalClient extends ClientManager{
             if (gstate != ClientManager.GameState.STARTED && gstate != ClientManager.GameState.PASSED) {
                 throw new ActionNotAllowedException("Cash command not expected here");
             }
-            System.out.println("Your current cash is " + d.getParams().getIntParameter().get(ParamNames.COINS.name()));
+            System.out.println("Your current cash is " + d.getParams().getInt(ParamNames.COINS));
             System.out.println("Do you want a play another game [Yes|No]");
             
             boolean valid = false;
@@ -141,7 +143,7 @@ public class TerminalClient extends ClientManager{
                     if (num_rolls < DataAssembler.MAX_ROLLS) {
                         System.out.print("You got: ");
                         for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
-                            System.out.print(d.getParams().getArrayParameter().get(ParamNames.DICES.name()).get(i) + " ");
+                            System.out.print(DiceHand.get(d.getParams().getHand(ParamNames.DICES), i) + " ");
                         }
                         
                         System.out.println("");
@@ -162,7 +164,7 @@ public class TerminalClient extends ClientManager{
                         if (txt.equals("Yes")) {
                             Datagram.Builder db = new Datagram.Builder();
                             db.withType(Commands.PASS);
-                            db.addParam(ParamNames.ID.name(), id);
+                            db.addParam(ParamNames.ID, id);
                             dg.add(db.build());
                             gstate = ClientManager.GameState.PASSED;
                         }
@@ -186,7 +188,7 @@ public class TerminalClient extends ClientManager{
                             }
                             
                             int pos;
-                            ArrayList<Integer> arrInt = new ArrayList<>();
+                            int arrInt = DiceHand.EMPTY;
                             for (int i = 0; i < size; i++) {
                                 System.out.println("Enter dice position");
                                 valid = false;
@@ -194,7 +196,7 @@ public class TerminalClient extends ClientManager{
                                     try {
                                         pos = nextInt();
                                         if (pos > 0 && pos < 6) {
-                                            arrInt.add(pos);
+                                            arrInt = DiceHand.add(arrInt, pos);
                                             valid = true;
                                         }
                                         else {
@@ -209,8 +211,8 @@ public class TerminalClient extends ClientManager{
                             
                             Datagram.Builder db = new Datagram.Builder();
                             db.withType(Commands.TAKE);
-                            db.addParam(ParamNames.ID.name(), id);
-                            db.addParam(ParamNames.DICES.name(), arrInt);
+                            db.addParam(ParamNames.ID, id);
+                            db.addHand(ParamNames.DICES, arrInt);
                             dg.add(db.build());
                         }
                         num_rolls++;
@@ -219,7 +221,7 @@ public class TerminalClient extends ClientManager{
                     else {
                         System.out.print("You got: ");
                         for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
-                            System.out.print(d.getParams().getArrayParameter().get(ParamNames.DICES.name()).get(i) + " ");
+                            System.out.print(DiceHand.get(d.getParams().getHand(ParamNames.DICES), i) + " ");
                         }
                         System.out.println("");
                         gstate = ClientManager.GameState.PASSED;
@@ -231,7 +233,7 @@ public class TerminalClient extends ClientManager{
                     ArrayList<Datagram> dg = new ArrayList<>();
                     Datagram.Builder db = new Datagram.Builder();
                     db.withType(Commands.ERRO);
-                    db.addParam(ParamNames.MESSAGE.name(), "Dice command not possible");
+                    db.addParam(ParamNames.MESSAGE, "Dice command not possible");
                     dg.add(db.build());
                     return dg;
             }
@@ -251,12 +253,12 @@ public class TerminalClient extends ClientManager{
             if (gstate != ClientManager.GameState.DICE && gstate != ClientManager.GameState.PASSED) {
                 throw new ActionNotAllowedException("Pnts command not expected here");
             }
-            if(d.getParams().getIntParameter().get(ParamNames.ID.name()) == id) {
-                System.out.println("Your punctuation is " + d.getParams().getIntParameter().get(ParamNames.POINTS.name()));
+            if(d.getParams().getInt(ParamNames.ID) == id) {
+                System.out.println("Your punctuation is " + d.getParams().getInt(ParamNames.POINTS));
                 first_player = 1;
             }
             else {
-                System.out.println("Other player's punctuation is " + d.getParams().getIntParameter().get(ParamNames.POINTS.name()));
+                System.out.println("Other player's punctuation is " + d.getParams().getInt(ParamNames.POINTS));
                 first_player = 0;
             }
             return null;
@@ -10,6 +10,16 @@ import java.net.Socket;
 public class ComUtils {
     private final int STRSIZE = 4;
 
+    /**
+     * Size of the output buffer in buffered mode
+     */
+    public static final int BUFFER_SIZE = 1024;
+
+    /**
+     * Scratch buffer reused by every read of a fixed size field
+     */
+    private final byte[] scratch = new byte[STRSIZE];
+
     private DataInputStream dataInputStream;
     private DataOutputStream dataOutputStream;
 
@@ -34,15 +44,41 @@ public class ComUtils {
         dataOutputStream = new DataOutputStream(socket.getOutputStream());
     }
 
+    /**
+     * Constructor with the socket as a stream. In buffered mode, the written bytes
+     * are kept in memory until flush() is called, so a whole batch of datagrams is
+     * sent at once instead of one small write for every field
+     * @param socket
+     * @param buffered true to buffer the written bytes until flush() is called
+     * @throws IOException if the connection cannot be created
+     */
+    public ComUtils(Socket socket, boolean buffered) throws IOException {
+        dataInputStream = new DataInputStream(socket.getInputStream());
+        if (buffered) {
+            dataOutputStream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+        }
+        else {
+            dataOutputStream = new DataOutputStream(socket.getOutputStream());
+        }
+    }
+
+    /**
+     * Sends all the bytes written and not sent yet (in buffered mode)
+     * @throws IOException if the connection cannot be created
+     */
+    public void flush() throws IOException {
+        dataOutputStream.flush();
+    }
+
     /**
      * Reads the next 4 bytes and returns it as an int
      * @return read int
      * @throws IOException if the connection cannot be created
      */
     public int read_int32() throws IOException {
-        byte bytes[] = read_bytes(4);
+        read_fully(scratch, 4);
 
-        return bytesToInt32(bytes,Endianness.BIG_ENNDIAN);
+        return bytesToInt32(scratch,Endianness.BIG_ENNDIAN);
     }
 
     /**
@@ -62,9 +98,9 @@ public class ComUtils {
      * @throws IOException if the connection cannot be created
      */
     public int read_int8() throws IOException {
-        byte bytes[] = read_bytes(1);
+        read_fully(scratch, 1);
 
-        return bytesToInt8(bytes);
+        return bytesToInt8(scratch);
     }
     
     /**
@@ -79,19 +115,23 @@ public class ComUtils {
     }
 
     /**
-     * Reads a string of maximum length of 40 characters
+     * Reads a string of maximum length of 40 characters. If the string is a command,
+     * the constant string of the command is returned (nothing is allocated)
      * @return read string
      * @throws IOException if the connection cannot be created
      */
     public String read_string() throws IOException {
         String result;
-        byte[] bStr = new byte[STRSIZE];
-        char[] cStr = new char[STRSIZE];
+        read_fully(scratch, STRSIZE);
 
-        bStr = read_bytes(STRSIZE);
+        Commands known = Commands.fromOpcode(bytesToInt32(scratch, Endianness.BIG_ENNDIAN));
+        if (known != null) {
+            return known.getKey();
+        }
 
+        char[] cStr = new char[STRSIZE];
         for(int i = 0; i < STRSIZE;i++)
-            cStr[i]= (char) bStr[i];
+            cStr[i]= (char) scratch[i];
 
         result = String.valueOf(cStr);
 
@@ -123,14 +163,25 @@ public class ComUtils {
         dataOutputStream.write(bStr, 0,STRSIZE);
     }
 
+    /**
+     * Writes raw bytes to the stream (an already encoded frame)
+     * @param bytes array with the bytes
+     * @param offset position of the first byte in the array
+     * @param length number of bytes to be written
+     * @throws IOException if the connection cannot be created
+     */
+    public void write_bytes(byte[] bytes, int offset, int length) throws IOException {
+        dataOutputStream.write(bytes, offset, length);
+    }
+
     /**
      * Reads a character
      * @return read character
      * @throws IOException if the connection cannot be created
      */
     public char read_char() throws IOException {
-        char result = (char) read_bytes(1)[0];
-        return result;
+        read_fully(scratch, 1);
+        return (char) scratch[0];
     }
 
     /**
@@ -193,16 +244,22 @@ public class ComUtils {
     
     //llegir bytes.
     private byte[] read_bytes(int numBytes) throws IOException {
-        int len = 0;
         byte bStr[] = new byte[numBytes];
+        read_fully(bStr, numBytes);
+        return bStr;
+    }
+
+    /* Llegir bytes al buffer donat, sense crear-ne cap de nou */
+    private void read_fully(byte[] bStr, int numBytes) throws IOException {
+        int len = 0;
         int bytesread = 0;
         do {
             bytesread = dataInputStream.read(bStr, len, numBytes-len);
-            if (bytesread == -1)
+            if (bytesread == -1) {
                 throw new IOException("Broken Pipe");
+            }
             len += bytesread;
         } while (len < numBytes);
-        return bStr;
     }
 
     /* Llegir un string  mida variable size = nombre de bytes especifica la longitud*/
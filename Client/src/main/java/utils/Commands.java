@@ -67,10 +67,56 @@ public enum Commands {
     EXIT("EXIT");
 
 
+    /**
+     * Number of bits of the slot of an opcode in the dispatch table
+     */
+    public static final int OPCODE_BITS;
+
+    /**
+     * Multiplier of the perfect hash of the opcodes (no two commands share a slot)
+     */
+    private static final int OPCODE_MULTIPLIER;
+
+    /**
+     * Dispatch table indexed by the slot of the opcode
+     */
+    private static final Commands[] BY_SLOT;
+
+    static {
+        Commands[] commands = values();
+        int bits = 32 - Integer.numberOfLeadingZeros(commands.length - 1);
+        int multiplier = 0x9E3779B1;
+        Commands[] table = null;
+        while (table == null) {
+            table = new Commands[1 << bits];
+            for (int i = 0; i < commands.length && table != null; i++) {
+                int slot = (commands[i].opcode * multiplier) >>> (32 - bits);
+                if (table[slot] != null) {
+                    table = null;
+                }
+                else {
+                    table[slot] = commands[i];
+                }
+            }
+            if (table == null) {
+                multiplier += 2;
+                if (multiplier == 0x9E3779B1 + 2 * 4096) {
+                    bits++;
+                    multiplier = 0x9E3779B1;
+                }
+            }
+        }
+        OPCODE_BITS = bits;
+        OPCODE_MULTIPLIER = multiplier;
+        BY_SLOT = table;
+    }
+
     private final String command;
+    private final int opcode;
 
     Commands(String command) {
         this.command = command;
+        this.opcode = (command.charAt(0) << 24) | (command.charAt(1) << 16) | (command.charAt(2) << 8) | command.charAt(3);
     }
 
     /**
@@ -81,4 +127,23 @@ public enum Commands {
         return this.command;
     }
 
+    /**
+     * Returns the command as it is sent, 4 bytes packed in a big endian int
+     * @return int with the command
+     */
+    public int getOpcode() {
+        return this.opcode;
+    }
+
+    /**
+     * Finds the command of an opcode with a single look up in the dispatch table.
+     * Unknown opcodes do not throw any exception
+     * @param opcode 4 bytes of the command packed in a big endian int
+     * @return the command or null if the opcode does not belong to any command
+     */
+    public static Commands fromOpcode(int opcode) {
+        Commands command = BY_SLOT[(opcode * OPCODE_MULTIPLIER) >>> (32 - OPCODE_BITS)];
+        return command != null && command.opcode == opcode ? command : null;
+    }
+
 }
@@ -20,4 +20,14 @@ public class DatagramSyntacticException extends Exception {
     public DatagramSyntacticException(String s){
         super(s);
     }
+
+    /**
+     * Constructor with message provided and without stack trace, cheaper to build
+     * for errors expected in normal operation (like an unknown command)
+     * @param s message to be thrown
+     * @param stackTrace false to skip filling the stack trace
+     */
+    public DatagramSyntacticException(String s, boolean stackTrace){
+        super(s, null, false, stackTrace);
+    }
 }
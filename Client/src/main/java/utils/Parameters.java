@@ -1,80 +1,181 @@
 package utils;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 
 /**
- * Class to store the parameters of a Datagram using HashMaps
+ * Class to store the parameters of a Datagram in slots indexed by the ordinal of
+ * their ParamNames. Integer parameters and dice lists (packed as a DiceHand) are
+ * kept as primitive ints and the strings in a small array created only if needed.
+ * The parameters of a shared datagram are frozen and cannot be changed
  * @author Oriol-Manu
  */
 public class Parameters {
 
-    private HashMap<String, Integer> intParameter = null;
-    private HashMap<String, String> stringParameter = null;
-    private HashMap<String, ArrayList<Integer>> arrayParameter = null;
+    private static final int SIZE = ParamNames.values().length;
+
+    private final int[] ints;
+    private String[] strings;
+    private int intMask;
+    private int stringMask;
+    private boolean frozen;
 
     /**
-     * Empty constructor to avoid inizializing HashMaps unnecessarily
+     * Empty constructor, the slots for strings are created when needed
      */
     public Parameters() {
+        this.ints = new int[SIZE];
+        this.strings = null;
+        this.intMask = 0;
+        this.stringMask = 0;
+        this.frozen = false;
+    }
+
+    /**
+     * Sets an integer parameter
+     * @param key name of the parameter
+     * @param value integer value
+     * @throws UnsupportedOperationException if the parameters are frozen
+     */
+    public void setInt(ParamNames key, int value) {
+        checkFrozen();
+        ints[key.ordinal()] = value;
+        intMask |= 1 << key.ordinal();
     }
 
     /**
-     * Returns the integer HashMap and creates it if not inicialized
-     * @return integer HashMap
+     * Sets a string parameter
+     * @param key name of the parameter
+     * @param value string value
+     * @throws UnsupportedOperationException if the parameters are frozen
      */
-    public HashMap<String, Integer> getIntParameter() {
-        if (intParameter == null) {
-            intParameter = new HashMap<>();
+    public void setString(ParamNames key, String value) {
+        checkFrozen();
+        if (strings == null) {
+            strings = new String[SIZE];
         }
-        return intParameter;
+        strings[key.ordinal()] = value;
+        stringMask |= 1 << key.ordinal();
+    }
+
+    /**
+     * Sets a packed hand of dices parameter
+     * @param key name of the parameter
+     * @param hand hand packed by DiceHand
+     * @throws UnsupportedOperationException if the parameters are frozen
+     */
+    public void setHand(ParamNames key, int hand) {
+        setInt(key, hand);
+    }
+
+    /**
+     * Sets an integer array parameter (it is packed as a DiceHand)
+     * @param key name of the parameter
+     * @param value integer array value
+     * @throws UnsupportedOperationException if the parameters are frozen
+     */
+    public void setArray(ParamNames key, ArrayList<Integer> value) {
+        setInt(key, DiceHand.fromList(value));
     }
 
     /**
-     * Returns the string HashMap and creates it if not inicialized
-     * @return string HashMap
+     * Returns an integer parameter
+     * @param key name of the parameter
+     * @return value of the parameter
+     * @throws NoSuchElementException if the parameter has not been set
      */
-    public HashMap<String, String> getStringParameter() {
-        if (stringParameter == null) {
-            stringParameter = new HashMap<>();
+    public int getInt(ParamNames key) {
+        if ((intMask & (1 << key.ordinal())) == 0) {
+            throw new NoSuchElementException("Parameter " + key + " not set");
         }
-        return stringParameter;
+        return ints[key.ordinal()];
+    }
+
+    /**
+     * Returns a string parameter
+     * @param key name of the parameter
+     * @return value of the parameter, null if it has not been set
+     */
+    public String getString(ParamNames key) {
+        return strings == null ? null : strings[key.ordinal()];
     }
 
     /**
-     * Returns the integer array HashMap and creates it if not inicialized
-     * @return integer array HashMap
+     * Returns a packed hand of dices parameter
+     * @param key name of the parameter
+     * @return hand packed by DiceHand
+     * @throws NoSuchElementException if the parameter has not been set
      */
-    public HashMap<String, ArrayList<Integer>> getArrayParameter() {
-        if (arrayParameter == null) {
-            arrayParameter = new HashMap<>();
+    public int getHand(ParamNames key) {
+        return getInt(key);
+    }
+
+    /**
+     * Returns an integer array parameter unpacked in a new list
+     * @param key name of the parameter
+     * @return value of the parameter, null if it has not been set
+     */
+    public ArrayList<Integer> getArray(ParamNames key) {
+        return hasParam(key) ? DiceHand.toList(getInt(key)) : null;
+    }
+
+    /**
+     * Checks if a parameter has been set
+     * @param key name of the parameter
+     * @return true if the parameter has any value
+     */
+    public boolean hasParam(ParamNames key) {
+        return ((intMask | stringMask) & (1 << key.ordinal())) != 0;
+    }
+
+    /**
+     * Forbids any change of the parameters from now on (e.g. of a shared datagram)
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    private void checkFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Parameters of a shared datagram cannot be changed");
         }
-        return arrayParameter;
     }
 
     /**
-     * Checks if 2 parameters objects are equal by checking every HashMap
+     * Checks if 2 parameters objects are equal by checking every slot set
      * @param obj Parameter object to be checked
      * @return true if equal, else otherwise
      */
     @Override
     public boolean equals(Object obj) {
         Parameters p = (Parameters) obj;
-        boolean eq = true;
-
-        if(this.intParameter != null && p.intParameter!=null){
-            eq = eq && this.intParameter.equals(p.intParameter);
+        if (this.intMask != p.intMask || this.stringMask != p.stringMask) {
+            return false;
         }
-
-        if(this.stringParameter!= null && p.stringParameter!=null){
-            eq = eq && this.stringParameter.equals(p.stringParameter);
+        for (int i = 0; i < SIZE; i++) {
+            if ((intMask & (1 << i)) != 0 && this.ints[i] != p.ints[i]) {
+                return false;
+            }
+            if ((stringMask & (1 << i)) != 0 && !Objects.equals(this.strings[i], p.strings[i])) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        if(this.arrayParameter!=null && p.arrayParameter!=null){
-            eq = eq && (this.arrayParameter.equals(p.arrayParameter));
+    /**
+     * @return hash code consistent with equals
+     */
+    @Override
+    public int hashCode() {
+        int hash = 31 * intMask + stringMask;
+        for (int i = 0; i < SIZE; i++) {
+            if ((intMask & (1 << i)) != 0) {
+                hash = 31 * hash + ints[i];
+            }
         }
-
-        return eq;
-
+        return strings == null ? hash : 31 * hash + Arrays.hashCode(strings);
     }
 }
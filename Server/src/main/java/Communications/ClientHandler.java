@@ -4,9 +4,15 @@ import Model.GameManager;
 import java.io.File;
 import java.io.IOException;
 import java.net.Socket;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import utils.ComUtils;
 import utils.DataAssembler;
 import utils.DataDisassembler;
+import utils.Datagram;
+import utils.FrameCache;
 
 /**
  * Class to handle every client extending from Thread. Every type of client handler
@@ -16,9 +22,9 @@ import utils.DataDisassembler;
 public abstract class ClientHandler extends Thread {
 
     /**
-     * Maximum number of timeouts for 2-player games
+     * Maximum time in milliseconds a 2-player game waits for the next datagram
      */
-    public static final int MAX_TIMEOUT = 120;
+    public static final long TURN_TIMEOUT = 60*1000;
 
     /**
      * Datagram assembler for the client's socket stream
@@ -52,13 +58,98 @@ public abstract class ClientHandler extends Thread {
     public ClientHandler(Socket socket) {
         try {
             sck = socket;
-            ComUtils com = new ComUtils(socket);
+            ComUtils com = new ComUtils(socket, true);
             assembler = new DataAssembler(com);
             disassembler = new DataDisassembler(com);
+        } catch (IOException ex) {
+            System.out.println(ex.getMessage());
+        }
+    }
+
+    /**
+     * Opens the log of the session once it runs (a refused session has no log)
+     */
+    protected void openLog() {
+        try {
             file = new LogWriter(new File("Server"+getName()+".log"));
         } catch (IOException ex) {
             System.out.println(ex.getMessage());
         }
     }
 
+    /**
+     * Starts the session in its own platform thread or, if an executor is given,
+     * runs it as a task of the executor (i.e. on a virtual thread)
+     * @param sessions executor running the sessions, null for a platform thread
+     */
+    public void launch(Executor sessions) {
+        if (sessions == null) {
+            start();
+        }
+        else {
+            sessions.execute(this);
+        }
+    }
+
+    /**
+     * Refuses the session without starting the game: sends an error datagram with
+     * the given message and closes the socket
+     * @param message message of the error
+     */
+    public void reject(String message) {
+        Datagram d = FrameCache.error(message);
+        try {
+            disassembler.disassembleDatagram(d);
+            disassembler.flush();
+        } catch (IOException ex) {
+            System.out.println("Socket not recognized");
+        }
+        finally {
+            try {
+                sck.close();
+            } catch (IOException ex) {
+                System.out.println("Socket not recognized");
+            }
+        }
+    }
+
+    /**
+     * Closes the socket at once (e.g. when a write is blocked for too long)
+     */
+    public void abort() {
+        try {
+            sck.close();
+        } catch (IOException ex) {
+            System.out.println("Socket not recognized");
+        }
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread for every session. It is
+     * looked up at runtime, so the server still builds on older JDKs
+     * @return executor with one virtual thread per task
+     * @throws UnsupportedOperationException if the running JDK has no virtual threads (Java 21 needed)
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or newer");
+        }
+    }
+
+    /**
+     * Creates a factory of virtual threads. It is looked up at runtime, so the server
+     * still builds on older JDKs
+     * @return factory of virtual threads
+     * @throws UnsupportedOperationException if the running JDK has no virtual threads (Java 21 needed)
+     */
+    public static ThreadFactory newVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or newer");
+        }
+    }
 }
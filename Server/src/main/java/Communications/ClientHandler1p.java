@@ -4,7 +4,6 @@ import Exceptions.ActionNotAllowedException;
 import Model.GameManager1p;
 import java.io.IOException;
 import java.net.Socket;
-import java.util.ArrayList;
 import utils.Commands;
 import utils.Datagram;
 import utils.Exceptions.DatagramSyntacticException;
@@ -32,7 +31,7 @@ public class ClientHandler1p extends ClientHandler {
      * Main method for any Thread class. It reads the first datagram from the client
      * (that initiates the game) and starts a while-loop ending when the received
      * command is of type EXIT or ERRO and the socket is connected. Inside the loop
-     * it sends a list of datagrams obtained from executing the last received datagram and
+     * it sends every datagram emitted when executing the last received datagram and
      * waits for a new datagram. Also, every datagram is written in the log.
      * The catch clauses are in case the connection is no loger available or there is any kind
      * of error with the received datagram or the game logic (in this case, it sends an
@@ -41,21 +40,19 @@ public class ClientHandler1p extends ClientHandler {
      */
     @Override
     public void run() {
+        openLog();
         try {
             Datagram in = assembler.assembleDatagram();
             file.writeDatagram(in, 1);
-            ArrayList<Datagram> out;
 
             while (in.getType() != Commands.EXIT && sck.isConnected() && in.getType() != Commands.ERRO) {
-                out = manager.executeAction(in);
-                for (int i = 0; i < out.size(); i++) {
-                    disassembler.disassembleDatagram(out.get(i));
-                    file.writeDatagram(out.get(i), 0);
-                }
+                manager.executeAction(in, this::send);
+                disassembler.flush();
                 in = assembler.assembleDatagram();
                 file.writeDatagram(in, 1);
                 if (in.getType() == Commands.ERRO) {
-                    manager.executeAction(in);
+                    manager.executeAction(in, this::send);
+                    disassembler.flush();
                 }
             }            
         } catch (IOException ex) {
@@ -64,10 +61,11 @@ public class ClientHandler1p extends ClientHandler {
         } catch (DatagramSyntacticException | ActionNotAllowedException e) {
             Datagram d = new Datagram.Builder()
                     .withType(Commands.ERRO)
-                    .addParam(ParamNames.MESSAGE.name(), "Protocol error:" + e.getMessage())
+                    .addParam(ParamNames.MESSAGE, "Protocol error:" + e.getMessage())
                     .build();
             try {
                 disassembler.disassembleDatagram(d);
+                disassembler.flush();
                 file.writeDatagram(d, 0);
             } catch (IOException ex) {
                 System.out.println("Socket not recognized");
@@ -77,14 +75,20 @@ public class ClientHandler1p extends ClientHandler {
             try {
                 sck.close();
                 file.closeFile();
-                if (manager.getPlayer() != null) {
-                    synchronized(this) {
-                        manager.getPlayer().disconnect();
-                    }
-                }
+                manager.releasePlayers();
            } catch (IOException ex1) {
                System.out.println("Socket not recognized");
            }
         }
     }
+
+    /**
+     * Writes a datagram emitted by the game logic to the stream and to the log
+     * @param d datagram to be sent
+     * @throws IOException if the socket is not available
+     */
+    private void send(Datagram d) throws IOException {
+        disassembler.disassembleDatagram(d);
+        file.writeDatagram(d, 0);
+    }
 }
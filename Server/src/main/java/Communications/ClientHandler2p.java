@@ -4,13 +4,18 @@ import Exceptions.ActionNotAllowedException;
 import Model.GameManager2p;
 import java.io.IOException;
 import java.net.Socket;
-import java.net.SocketTimeoutException;
-import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import utils.ComUtils;
 import utils.Commands;
 import utils.DataAssembler;
 import utils.DataDisassembler;
 import utils.Datagram;
+import utils.FrameCache;
 import utils.Exceptions.DatagramSyntacticException;
 import utils.ParamNames;
 
@@ -21,9 +26,32 @@ import utils.ParamNames;
  */
 public class ClientHandler2p extends ClientHandler {
 
+    /**
+     * Maximum time in milliseconds a datagram can take to be treated and written
+     * (the sockets are closed if a player does not read them)
+     */
+    public static final long WRITE_TIMEOUT = 10*1000;
+
     private DataAssembler assembler2;
     private DataDisassembler disassembler2;
     private Socket sck2;
+    private final Executor readers;
+    private final Datagram[] first;
+    private boolean started;
+    private volatile boolean finished;
+    private volatile boolean expired;
+    private volatile long deadline;
+    private volatile long busySince;
+    private volatile ScheduledFuture<?> timer;
+
+    /**
+     * Timer checking the turn deadline of every game
+     */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "turn-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
     
     /**
      * Constructor inheriting from ClientHandler and adding a new socket for the second player
@@ -31,10 +59,23 @@ public class ClientHandler2p extends ClientHandler {
      * @param socket2 socket for the second player
      */
     public ClientHandler2p (Socket socket1, Socket socket2) {
+        this(socket1, socket2, r -> new Thread(r).start());
+    }
+
+    /**
+     * Constructor inheriting from ClientHandler and adding a new socket for the second player
+     * @param socket1 socket for the first player
+     * @param socket2 socket for the second player
+     * @param readers executor running the task waiting for datagrams from the second
+     *                socket (e.g. a companion thread of a SessionPool)
+     */
+    public ClientHandler2p (Socket socket1, Socket socket2, Executor readers) {
         super(socket1);
+        this.first = new Datagram[2];
+        this.readers = readers;
         try {
             sck2 = socket2;
-            ComUtils com2 = new ComUtils(socket2);
+            ComUtils com2 = new ComUtils(socket2, true);
             assembler2 = new DataAssembler(com2);
             disassembler2 = new DataDisassembler(com2);
         } catch (IOException ex) {
@@ -44,203 +85,369 @@ public class ClientHandler2p extends ClientHandler {
     }
     
     /**
-     * Main method for any Thread class. Since the timeout is shared for 2 players,
-     * we need to implement a timeout by counting the number of read timeouts for both
-     * sockets at one. It reads the first datagram from both clients (that initiates the game) 
-     * and starts a while-loop ending when any received command is of type EXIT or ERRO, 
-     * both sockets are connected and shared timeout is not reached. Inside the loop,
-     * it sends a list of datagrams obtained from executing the last received datagram 
-     * from any client, taking into account that it may send different packages to every
-     * client, and waits for a new datagram from any client. Also, every datagram is written in the log.
-     * Also, it doesn't read any datagram if there is an untreated datagram provided
-     * from any client and send an error datagram if one client leaf or make an error.
-     * The catch clauses are in case the connection is no loger available or there is any kind
-     * of error with the received datagram or the game logic (in this case, it sends an
-     * error datagram to both clients).
+     * Gives the first datagrams of both players when they have already been read
+     * (i.e. by the matchmaker). They are treated before any other datagram
+     * @param first1 first datagram of the first player
+     * @param first2 first datagram of the second player
+     */
+    public void setFirstDatagrams(Datagram first1, Datagram first2) {
+        first[0] = first1;
+        first[1] = first2;
+    }
+
+    /**
+     * Refuses the session for both players
+     * @param message message of the error
+     */
+    @Override
+    public void reject(String message) {
+        Datagram d = new Datagram.Builder()
+                .withType(Commands.ERRO)
+                .addParam(ParamNames.MESSAGE, message)
+                .build();
+        try {
+            disassembler2.disassembleDatagram(d);
+            disassembler2.flush();
+        } catch (IOException ex) {
+            System.out.println("Socket not recognized");
+        }
+        finally {
+            try {
+                sck2.close();
+            } catch (IOException ex) {
+                System.out.println("Socket not recognized");
+            }
+        }
+        super.reject(message);
+    }
+
+    /**
+     * Closes both sockets at once
+     */
+    @Override
+    public void abort() {
+        try {
+            sck2.close();
+        } catch (IOException ex) {
+            System.out.println("Socket not recognized");
+        }
+        super.abort();
+    }
+
+    /**
+     * Main method for any Thread class. Both sockets are watched at once: this thread
+     * reads the first player's datagrams and a reader thread the second player's ones,
+     * and every datagram is treated as soon as it arrives by the thread that has read
+     * it (one at a time), whoever sends it. The first datagram of both clients initiates
+     * the game; a player sending another datagram before is answered with an error.
+     * Then, every datagram is executed and the datagrams obtained are sent to their
+     * receivers, taking into account that it may send different packages to every
+     * client. Also, every datagram is written in the log. The game ends when any
+     * received command is of type EXIT or ERRO, any connection is no longer available
+     * or no datagram is received before the turn deadline (checked by a timer shared
+     * by all games, which stops the reading of both sockets without taking the lock
+     * of the game, and closes them if a datagram is not written in WRITE_TIMEOUT).
      * Finally, it closes the streams and the log file and disconnect the player
      */
     @Override
     public void run() {
-        try {
-            int status = 0;
-            int timeout = 0;
-            Datagram in1 = null, in2 = null;
-            while (status < 2 && timeout < MAX_TIMEOUT*2) {
+        openLog();
+        CountDownLatch reader = new CountDownLatch(1);
+        synchronized (this) {
+            deadline = System.currentTimeMillis() + TURN_TIMEOUT;
+            timer = TIMER.schedule(this::checkTimeout, Math.min(TURN_TIMEOUT, WRITE_TIMEOUT), TimeUnit.MILLISECONDS);
+            if (first[0] != null && first[1] != null) {
+                busySince = System.currentTimeMillis();
                 try {
-                    try {
-                        in1 = assembler.assembleDatagram();
-                        status++;
-                    }
-                    catch (SocketTimeoutException ex){
-                        timeout++;
-                    }
-                    try {
-                        in2 = assembler2.assembleDatagram();
-                        status++;
-                    }
-                    catch (SocketTimeoutException ex){
-                        timeout++;
-                    }
+                    begin();
+                } catch (IOException ex) {
+                    System.out.println(ex.getMessage());
+                    finish();
+                } finally {
+                    busySince = 0;
                 }
-                catch (DatagramSyntacticException e) {
-                    Datagram d = new Datagram.Builder()
-                            .withType(Commands.ERRO)
-                            .addParam(ParamNames.MESSAGE.name(), "Protocol error:" + e.getMessage())
-                            .build();
-                    disassembler.disassembleDatagram(d);
-                    disassembler2.disassembleDatagram(d);
-                    file.writeDatagram(d, 0);
+            }
+        }
+        readers.execute(() -> {
+            try {
+                read(assembler2, 1);
+            } finally {
+                reader.countDown();
+            }
+        });
+        read(assembler, 0);
+        try {
+            reader.await();
+        } catch (InterruptedException ex) {
+            System.out.println("Game interrupted");
+        }
+        finally {
+            try {
+                synchronized (this) {
+                    finish();
+                    timer.cancel(false);
                 }
+                file.closeFile();
+                manager.releasePlayers();
+            } catch (IOException ex1) {
+                System.out.println("Socket not recognized");
             }
-            
-            if (timeout < MAX_TIMEOUT*2) {
-                file.writeDatagram(in1, 2);
-                file.writeDatagram(in2, 3);
-                ArrayList<Datagram> out;
-                timeout = 0;
-                Datagram error;
-                
-                while (((in1 != null && in1.getType() != Commands.EXIT) || (in2 != null && in2.getType() != Commands.EXIT)) &&
-                        ((in1 != null && in1.getType() != Commands.ERRO) || (in2 != null && in2.getType() != Commands.ERRO)) &&
-                        sck.isConnected() && sck2.isConnected() && timeout < MAX_TIMEOUT) {
-                    try {
-                        if (in1 != null) {
-                            out = ((GameManager2p)manager).executeAction(in1, 0);
-                            in1 = null;
-                        }
-                        else {
-                            out = ((GameManager2p)manager).executeAction(in2, 1);
-                            in2 = null;
-                        }
-                        for (int i = 0; i < out.size(); i++) {
-                            switch (out.get(i).getParams().getIntParameter().get(ParamNames.RECEIVER.name())) {
-                                case 0:
-                                    disassembler.disassembleDatagram(out.get(i));
-                                    break;
-                                case 1:
-                                    disassembler2.disassembleDatagram(out.get(i));
-                                    break;
-                                default:
-                                    disassembler.disassembleDatagram(out.get(i));
-                                    disassembler2.disassembleDatagram(out.get(i));
-                                    break;
-                            }
-                            file.writeDatagram(out.get(i), 0);
-                        }
-                        if (in1 == null && in2 == null) {
-                            timeout = 0;
-                            boolean started = false;
-                            while (!started && timeout < MAX_TIMEOUT) {
-                                try {
-                                    in1 = assembler.assembleDatagram();
-                                    started = true;
-                                    file.writeDatagram(in1, 2);
-                                }
-                                catch (SocketTimeoutException ex){
-                                    timeout++;
-                                }
-                                try {
-                                    if (!started) {
-                                        in2 = assembler2.assembleDatagram();
-                                        started = true;
-                                        file.writeDatagram(in2, 3);
-                                    }
-                                }
-                                catch (SocketTimeoutException ex){
-                                    timeout++;
-                                }
-                            }
-                        }
-                        if (in1 != null && in1.getType() == Commands.ERRO) {
-                            manager.executeAction(in1);
-                        }
-                        if (in2 != null && in2.getType() == Commands.ERRO) {
-                            manager.executeAction(in2);
-                        }
-                    }
-                    catch (DatagramSyntacticException | ActionNotAllowedException e) {
-                        Datagram d = new Datagram.Builder()
-                                .withType(Commands.ERRO)
-                                .addParam(ParamNames.MESSAGE.name(), "Protocol error:" + e.getMessage())
-                                .build();
-                        disassembler.disassembleDatagram(d);
-                        disassembler2.disassembleDatagram(d);
-                        file.writeDatagram(d, 0);
-                    }
+        }
+    }
+
+    /**
+     * Reads the datagrams of a player until the game is finished
+     * @param reader assembler of the player's socket
+     * @param player position of the player (0 or 1)
+     */
+    private void read(DataAssembler reader, int player) {
+        while (!isFinished()) {
+            try {
+                Datagram in = reader.assembleDatagram();
+                receive(player, in);
+            } catch (DatagramSyntacticException ex) {
+                syntaxError(ex);
+            } catch (IOException ex) {
+                disconnected(ex);
+            }
+        }
+    }
+
+    /**
+     * Treats a datagram received from a player
+     * @param player position of the player (0 or 1)
+     * @param in datagram received
+     */
+    private synchronized void receive(int player, Datagram in) {
+        if (finished) {
+            return;
+        }
+        deadline = System.currentTimeMillis() + TURN_TIMEOUT;
+        busySince = System.currentTimeMillis();
+        try {
+            if (started) {
+                file.writeDatagram(in, player + 2);
+                if (!execute(player, in)) {
+                    finish();
                 }
-                if (timeout >= MAX_TIMEOUT) {
-                    Datagram d = new Datagram.Builder()
-                        .withType(Commands.ERRO)
-                        .addParam(ParamNames.MESSAGE.name(), "Protocol error:" + "Timeout problem")
-                        .build();
-                disassembler.disassembleDatagram(d);
-                disassembler2.disassembleDatagram(d);
+            }
+            else if (first[player] != null) {
+                Datagram d = error("Wait for the opponent");
+                (player == 0 ? disassembler : disassembler2).disassembleDatagram(d);
+                flush();
                 file.writeDatagram(d, 0);
-                }
-                else if (in1 != null && in1.getType() == Commands.EXIT) {
-                    Datagram d = new Datagram.Builder()
-                        .withType(Commands.ERRO)
-                        .addParam(ParamNames.MESSAGE.name(), "Protocol error:" + "The opponent has disconnected")
-                        .build();
-                    disassembler2.disassembleDatagram(d);
-                    file.writeDatagram(d, 0);
-                }
-                else if (in2 != null && in2.getType() == Commands.EXIT) {
-                    Datagram d = new Datagram.Builder()
-                        .withType(Commands.ERRO)
-                        .addParam(ParamNames.MESSAGE.name(), "Protocol error:" + "The opponent has disconnected")
-                        .build();
-                    disassembler.disassembleDatagram(d);
-                    file.writeDatagram(d, 0);
-                }
-                else if (in1 != null && in1.getType() == Commands.ERRO) {
-                    Datagram d = new Datagram.Builder()
-                        .withType(Commands.ERRO)
-                        .addParam(ParamNames.MESSAGE.name(), "Protocol error:" + "The opponent has disconnected")
-                        .build();
-                    disassembler2.disassembleDatagram(d);
-                    file.writeDatagram(d, 0);
-                }
-                else if (in2 != null && in2.getType() == Commands.ERRO) {
-                    Datagram d = new Datagram.Builder()
-                        .withType(Commands.ERRO)
-                        .addParam(ParamNames.MESSAGE.name(), "Protocol error:" + "The opponent has disconnected")
-                        .build();
-                    disassembler.disassembleDatagram(d);
-                    file.writeDatagram(d, 0);
-                }
             }
             else {
-                Datagram d = new Datagram.Builder()
-                        .withType(Commands.ERRO)
-                        .addParam(ParamNames.MESSAGE.name(), "Protocol error:" + "Timeout problem")
-                        .build();
-                disassembler.disassembleDatagram(d);
-                disassembler2.disassembleDatagram(d);
-                file.writeDatagram(d, 0);
+                first[player] = in;
+                if (first[0] != null && first[1] != null) {
+                    begin();
+                }
             }
+        } catch (IOException ex) {
+            System.out.println(ex.getMessage());
+            finish();
+        } finally {
+            busySince = 0;
         }
-        catch (IOException ex) {
+    }
+
+    /**
+     * Starts the game with the first datagram of both players (the first player's one
+     * is executed first, as the game logic expects)
+     * @throws IOException if any socket is not available
+     */
+    private void begin() throws IOException {
+        started = true;
+        file.writeDatagram(first[0], 2);
+        file.writeDatagram(first[1], 3);
+        if (!execute(0, first[0]) || !execute(1, first[1])) {
+            finish();
+        }
+    }
+
+    /**
+     * Sends the error of a datagram not well built to both players (the game goes on)
+     * @param ex exception with the error
+     */
+    private synchronized void syntaxError(DatagramSyntacticException ex) {
+        if (finished) {
+            return;
+        }
+        busySince = System.currentTimeMillis();
+        try {
+            sendAll(error(ex.getMessage()));
+        } catch (IOException ex1) {
+            System.out.println(ex1.getMessage());
+            finish();
+        } finally {
+            busySince = 0;
+        }
+    }
+
+    /**
+     * Finishes the game when a socket is not available anymore: because of the turn
+     * deadline (both players are told) or because a player has left
+     * @param ex exception thrown by the socket
+     */
+    private synchronized void disconnected(IOException ex) {
+        if (finished) {
+            return;
+        }
+        if (expired) {
+            busySince = System.currentTimeMillis();
+            try {
+                sendAll(FrameCache.error(FrameCache.TIMEOUT));
+            } catch (IOException ex1) {
+                System.out.println(ex1.getMessage());
+            } finally {
+                busySince = 0;
+            }
+        }
+        else {
             System.out.println(ex.getMessage());
         }
-        finally {
+        finish();
+    }
+
+    /**
+     * Run by the timer without taking the lock of the game (a blocked write never
+     * blocks the timer of the other games): closes both sockets if a datagram has been
+     * treated for longer than WRITE_TIMEOUT (a player does not read), stops the reading
+     * of both sockets if the deadline is overpassed (the reading threads send the
+     * timeout error) and checks again until the game is finished
+     */
+    private void checkTimeout() {
+        if (finished) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long since = busySince;
+        if (since != 0 && now - since >= WRITE_TIMEOUT) {
+            abort();
+            return;
+        }
+        long wait = deadline - now;
+        if (wait <= 0 && !expired) {
+            expired = true;
             try {
-                sck.close();
-                sck2.close();
-                file.closeFile();
-                if (manager.getPlayer() != null) {
-                    synchronized(this) {
-                        manager.getPlayer().disconnect();
-                    }
-                }
-                if (((GameManager2p)manager).getPlayer2() != null) {
-                    synchronized(this) {
-                        ((GameManager2p)manager).getPlayer2().disconnect();
-                    }
+                sck.shutdownInput();
+                sck2.shutdownInput();
+            } catch (IOException ex) {
+                System.out.println(ex.getMessage());
+            }
+        }
+        timer = TIMER.schedule(this::checkTimeout, wait > 0 ? Math.min(wait, WRITE_TIMEOUT) : WRITE_TIMEOUT,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks the game as finished and closes both sockets, so the reading threads stop
+     */
+    private synchronized void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            sck.close();
+            sck2.close();
+        } catch (IOException ex) {
+            System.out.println("Socket not recognized");
+        }
+    }
+
+    private boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Executes the received datagram on behalf of the player who has sent it and sends
+     * the datagrams obtained to their receivers. If the player has sent an EXIT or ERRO
+     * command, the opponent is told that the player has disconnected
+     * @param player position of the player who has sent the datagram (0 or 1)
+     * @param in datagram received
+     * @return false if the game is finished, true otherwise
+     * @throws IOException if any socket is not available
+     */
+    private boolean execute(int player, Datagram in) throws IOException {
+        if (in.getType() == Commands.EXIT || in.getType() == Commands.ERRO) {
+            if (in.getType() == Commands.ERRO) {
+                try {
+                    manager.executeAction(in, this::route);
+                } catch (ActionNotAllowedException ex) {
+                    System.out.println(ex.getMessage());
                 }
-           } catch (IOException ex1) {
-               System.out.println("Socket not recognized");
-           }
+            }
+            Datagram d = FrameCache.error(FrameCache.OPPONENT_DISCONNECTED);
+            if (player == 0) {
+                disassembler2.disassembleDatagram(d);
+            }
+            else {
+                disassembler.disassembleDatagram(d);
+            }
+            flush();
+            file.writeDatagram(d, 0);
+            return false;
+        }
+        try {
+            ((GameManager2p)manager).executeAction(in, player, this::route);
+        }
+        catch (ActionNotAllowedException e) {
+            sendAll(error(e.getMessage()));
+        }
+        flush();
+        return true;
+    }
+
+    /**
+     * Writes a datagram emitted by the game logic to the stream of its receiver
+     * (both players if the receiver is 2) and to the log
+     * @param d datagram to be sent
+     * @throws IOException if any socket is not available
+     */
+    private void route(Datagram d) throws IOException {
+        switch (d.getParams().getInt(ParamNames.RECEIVER)) {
+            case 0:
+                disassembler.disassembleDatagram(d);
+                break;
+            case 1:
+                disassembler2.disassembleDatagram(d);
+                break;
+            default:
+                disassembler.disassembleDatagram(d);
+                disassembler2.disassembleDatagram(d);
+                break;
         }
+        file.writeDatagram(d, 0);
+    }
+
+    /**
+     * Sends the datagram to both players and writes it in the log
+     * @param d datagram to be sent
+     * @throws IOException if any socket is not available
+     */
+    private void sendAll(Datagram d) throws IOException {
+        disassembler.disassembleDatagram(d);
+        disassembler2.disassembleDatagram(d);
+        flush();
+        file.writeDatagram(d, 0);
+    }
+
+    /**
+     * Sends the datagrams buffered for both players
+     * @throws IOException if any socket is not available
+     */
+    private void flush() throws IOException {
+        disassembler.flush();
+        disassembler2.flush();
+    }
+
+    /**
+     * Builds a protocol error datagram
+     * @param message message of the error
+     * @return the ERRO datagram
+     */
+    private static Datagram error(String message) {
+        return FrameCache.error(FrameCache.PROTOCOL_ERROR + message);
     }
 }
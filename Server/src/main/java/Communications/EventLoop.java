@@ -0,0 +1,125 @@
+package Communications;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Thread owning a selector and every table registered on it. All game actions of
+ * its tables are executed by this thread when their sockets become readable
+ * @author Oriol-Manu
+ */
+public class EventLoop extends Thread {
+
+    /**
+     * Maximum time in milliseconds the loop waits before checking the timeouts
+     */
+    public static final long TICK = 1000;
+
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<NioTable> incoming;
+    private final ArrayList<NioTable> tables;
+
+    /**
+     * Constructor opening the selector
+     * @throws IOException if the selector cannot be opened
+     */
+    public EventLoop() throws IOException {
+        this.selector = Selector.open();
+        this.incoming = new ConcurrentLinkedQueue<>();
+        this.tables = new ArrayList<>();
+    }
+
+    /**
+     * @return selector of this loop
+     */
+    public Selector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Hands a new table to this loop (can be called from any thread)
+     * @param table table to be served by this loop
+     */
+    public void addTable(NioTable table) {
+        incoming.add(table);
+        selector.wakeup();
+    }
+
+    /**
+     * Main method for any Thread class. It waits for readiness events and dispatches
+     * them to the table of the connection. Every tick, it closes the tables whose
+     * deadline has been overpassed
+     */
+    @Override
+    public void run() {
+        long lastCheck = System.currentTimeMillis();
+        while (!isInterrupted()) {
+            try {
+                selector.select(TICK);
+                NioTable table;
+                while ((table = incoming.poll()) != null) {
+                    try {
+                        table.open(this);
+                        tables.add(table);
+                    } catch (IOException ex) {
+                        System.out.println(ex.getMessage());
+                        table.close();
+                    }
+                }
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    dispatch(key);
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastCheck >= TICK) {
+                    lastCheck = now;
+                    checkTables(now);
+                }
+            } catch (IOException ex) {
+                System.out.println(ex.getMessage());
+            }
+        }
+    }
+
+    private void dispatch(SelectionKey key) {
+        NioConnection c = (NioConnection) key.attachment();
+        NioTable table = c.getTable();
+        try {
+            if (key.isReadable() && !table.isClosed()) {
+                table.onReadable(c);
+            }
+            if (key.isValid() && key.isWritable()) {
+                c.flush();
+            }
+        } catch (IOException | CancelledKeyException ex) {
+            table.close();
+        } catch (RuntimeException ex) {
+            System.out.println("Session closed: " + ex);
+            table.close();
+        }
+    }
+
+    private void checkTables(long now) {
+        Iterator<NioTable> it = tables.iterator();
+        while (it.hasNext()) {
+            NioTable table = it.next();
+            try {
+                table.checkTimeout(now);
+            } catch (IOException ex) {
+                table.close();
+            }
+            if (table.isClosed() && table.expire(now)) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import utils.Commands;
 import utils.Datagram;
+import utils.DiceHand;
 import utils.ParamNames;
 
 /**
@@ -102,7 +103,7 @@ public class LogWriter {
          */
         @Override
         public void write(Datagram d) throws IOException {
-            fw.write(" " + d.getParams().getIntParameter().get(ParamNames.COINS.name()));
+            fw.write(" " + d.getParams().getInt(ParamNames.COINS));
         }
     }
 
@@ -115,7 +116,7 @@ public class LogWriter {
          */
         @Override
         public void write(Datagram d) throws IOException {
-            fw.write(" " + d.getParams().getIntParameter().get(ParamNames.COINS.name()));
+            fw.write(" " + d.getParams().getInt(ParamNames.COINS));
         }
     }
 
@@ -128,7 +129,7 @@ public class LogWriter {
          */
         @Override
         public void write(Datagram d) throws IOException {
-            fw.write(" " + d.getParams().getIntParameter().get(ParamNames.PLAYER.name()));
+            fw.write(" " + d.getParams().getInt(ParamNames.PLAYER));
         }
     }
 
@@ -141,10 +142,8 @@ public class LogWriter {
          */
         @Override
         public void write(Datagram d) throws IOException {            
-            fw.write(" " + d.getParams().getIntParameter().get(ParamNames.ID.name()));
-            for (Integer i: d.getParams().getArrayParameter().get(ParamNames.DICES.name())) {
-                fw.write(" " + i);
-            }
+            fw.write(" " + d.getParams().getInt(ParamNames.ID));
+            fw.write(" " + DiceHand.toString(d.getParams().getHand(ParamNames.DICES)));
         }
     }
 
@@ -157,10 +156,11 @@ public class LogWriter {
          */
         @Override
         public void write(Datagram d) throws IOException {
-            fw.write(" " + d.getParams().getIntParameter().get(ParamNames.ID.name()));
-            fw.write(" " + d.getParams().getArrayParameter().get(ParamNames.DICES.name()).size());
-            for (Integer i: d.getParams().getArrayParameter().get(ParamNames.DICES.name())) {
-                fw.write(" " + i);
+            fw.write(" " + d.getParams().getInt(ParamNames.ID));
+            int hand = d.getParams().getHand(ParamNames.DICES);
+            fw.write(" " + DiceHand.size(hand));
+            for (int i = 0; i < DiceHand.size(hand); i++) {
+                fw.write(" " + DiceHand.get(hand, i));
             }
         }
     }
@@ -174,7 +174,7 @@ public class LogWriter {
          */
         @Override
         public void write(Datagram d) throws IOException {
-            fw.write(" " + d.getParams().getIntParameter().get(ParamNames.ID.name()));
+            fw.write(" " + d.getParams().getInt(ParamNames.ID));
         }
     }
 
@@ -187,8 +187,8 @@ public class LogWriter {
          */
         @Override
         public void write(Datagram d) throws IOException {
-            fw.write(" " + d.getParams().getIntParameter().get(ParamNames.ID.name()));
-            fw.write(" " + d.getParams().getIntParameter().get(ParamNames.POINTS.name()));
+            fw.write(" " + d.getParams().getInt(ParamNames.ID));
+            fw.write(" " + d.getParams().getInt(ParamNames.POINTS));
         }
     }
 
@@ -201,7 +201,7 @@ public class LogWriter {
          */
         @Override
         public void write(Datagram d) throws IOException {
-            fw.write(" " + d.getParams().getIntParameter().get(ParamNames.WINNER.name()));
+            fw.write(" " + d.getParams().getInt(ParamNames.WINNER));
         }
     }
 
@@ -214,7 +214,7 @@ public class LogWriter {
          */
         @Override
         public void write(Datagram d) throws IOException {
-            fw.write(" " + d.getParams().getStringParameter().get(ParamNames.MESSAGE.name()));
+            fw.write(" " + d.getParams().getString(ParamNames.MESSAGE));
         }
     }
 
@@ -227,7 +227,7 @@ public class LogWriter {
          */
         @Override
         public void write(Datagram d) throws IOException {
-            fw.write(" " + d.getParams().getIntParameter().get(ParamNames.ID.name()));
+            fw.write(" " + d.getParams().getInt(ParamNames.ID));
         }
     }
 
@@ -0,0 +1,265 @@
+package Communications;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import utils.ComUtils;
+import utils.Commands;
+import utils.DataAssembler;
+import utils.DataDisassembler;
+import utils.Datagram;
+import utils.FrameCache;
+import utils.Exceptions.DatagramSyntacticException;
+
+/**
+ * Waiting room for 2 player games. The acceptor just hands every socket to the
+ * matchmaker, which waits for its STRT command in one of a bounded number of
+ * greeting threads and pairs it with a player already waiting (if any) as soon as
+ * it arrives. The waiting players sit in several slots (one for every processor),
+ * so the pairings made at the same time do not compete for the same slot. A waiting
+ * player is checked to be still connected before being paired, and players waiting
+ * longer than the timeout are sent away
+ * @author Oriol-Manu
+ */
+public class Matchmaker {
+
+    /**
+     * Maximum time in milliseconds a player waits for the STRT command or an opponent
+     */
+    public static final long MATCH_TIMEOUT = ClientHandler.TURN_TIMEOUT;
+
+    /**
+     * Maximum number of players waiting for their STRT command at the same time (the
+     * same number can be queued, the rest are refused with a "server busy" error)
+     */
+    public static final int MAX_GREETERS = 256;
+
+    private final AtomicReferenceArray<Candidate> waiting;
+    private final ThreadPoolExecutor greeters;
+    private final ScheduledExecutorService sweeper;
+    private final Rejector rejector;
+    private final Executor sessions;
+    private final Executor readers;
+
+    /**
+     * Constructor starting the threads that check the lonely players
+     * @param sessions executor running the games, null for a platform thread for every game
+     * @param factory factory of the threads waiting for the STRT commands (and of the
+     *                readers of the second players if the games are not run by a SessionPool)
+     */
+    public Matchmaker(Executor sessions, ThreadFactory factory) {
+        this.waiting = new AtomicReferenceArray<>(Runtime.getRuntime().availableProcessors());
+        this.greeters = new ThreadPoolExecutor(MAX_GREETERS, MAX_GREETERS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_GREETERS), factory);
+        greeters.allowCoreThreadTimeOut(true);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor();
+        this.rejector = new Rejector();
+        this.sessions = sessions;
+        this.readers = sessions instanceof SessionPool ? ((SessionPool) sessions)::executeCompanion
+                : r -> factory.newThread(r).start();
+        sweeper.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Adds a new player to the waiting room (returns immediately). If all the greeting
+     * threads are busy, the player is refused by a Rejector (the socket is aborted if
+     * the error is not written in Rejector.REJECT_TIMEOUT)
+     * @param socket socket of the player
+     */
+    public void join(Socket socket) {
+        try {
+            greeters.execute(() -> greet(socket));
+        } catch (RejectedExecutionException ex) {
+            rejector.reject(() -> {
+                try {
+                    reject(socket, new ComUtils(socket), FrameCache.SERVER_BUSY);
+                } catch (IOException ex1) {
+                    close(socket);
+                }
+            }, () -> close(socket));
+        }
+    }
+
+    /**
+     * Waits for the STRT command of the player and offers it to the waiting room.
+     * Any other command is answered with an error and the socket is closed
+     * @param socket socket of the player
+     */
+    private void greet(Socket socket) {
+        ComUtils com = null;
+        try {
+            socket.setSoTimeout((int) MATCH_TIMEOUT);
+            com = new ComUtils(socket);
+            Datagram strt = new DataAssembler(com).assembleDatagram();
+            if (strt.getType() == Commands.STRT) {
+                socket.setSoTimeout(0);
+                offer(new Candidate(socket, com, strt));
+            }
+            else if (strt.getType() == Commands.EXIT) {
+                socket.close();
+            }
+            else {
+                reject(socket, com, FrameCache.START_FIRST);
+            }
+        } catch (DatagramSyntacticException ex) {
+            reject(socket, com, FrameCache.PROTOCOL_ERROR + ex.getMessage());
+        } catch (IOException ex) {
+            System.out.println(ex.getMessage());
+            close(socket);
+        }
+    }
+
+    /**
+     * Pairs the candidate with a player waiting or leaves it waiting in a free slot
+     * if there is no one. It never blocks: every slot is updated atomically. After
+     * taking a slot, the candidate looks again for a player that has taken another
+     * slot meanwhile, so two players are never left waiting at the same time
+     * @param c player that has sent its STRT command
+     */
+    private void offer(Candidate c) {
+        int start = ThreadLocalRandom.current().nextInt(waiting.length());
+        while (true) {
+            Candidate other = take(start, null);
+            if (other != null) {
+                pair(other, c);
+                return;
+            }
+            for (int i = 0; i < waiting.length(); i++) {
+                int slot = (start + i) % waiting.length();
+                if (waiting.compareAndSet(slot, null, c)) {
+                    other = take(start, c);
+                    if (other == null) {
+                        return;
+                    }
+                    if (waiting.compareAndSet(slot, c, null)) {
+                        pair(other, c);
+                    }
+                    else {
+                        offer(other);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a player still connected out of its slot (the disconnected ones found are
+     * removed)
+     * @param start first slot checked
+     * @param self candidate that is not taken (null if it is not waiting)
+     * @return the player taken or null if no one is waiting
+     */
+    private Candidate take(int start, Candidate self) {
+        for (int i = 0; i < waiting.length(); i++) {
+            int slot = (start + i) % waiting.length();
+            Candidate other = waiting.get(slot);
+            if (other != null && other != self && waiting.compareAndSet(slot, other, null)) {
+                if (other.isConnected()) {
+                    return other;
+                }
+                close(other.socket);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starts the game of two players
+     * @param first player that was waiting
+     * @param second player that has arrived
+     */
+    private void pair(Candidate first, Candidate second) {
+        ClientHandler2p game = new ClientHandler2p(first.socket, second.socket, readers);
+        game.setFirstDatagrams(first.strt, second.strt);
+        game.launch(sessions);
+    }
+
+    /**
+     * Sends away the players waiting longer than the timeout
+     */
+    private void sweep() {
+        for (int slot = 0; slot < waiting.length(); slot++) {
+            Candidate other = waiting.get(slot);
+            if (other != null && System.currentTimeMillis() - other.since > MATCH_TIMEOUT
+                    && waiting.compareAndSet(slot, other, null)) {
+                reject(other.socket, other.com, FrameCache.NO_OPPONENT);
+            }
+        }
+    }
+
+    /**
+     * Sends an error and closes the socket
+     * @param socket socket of the player
+     * @param com stream of the socket (null if it has not been created)
+     * @param message whole message of the error
+     */
+    private void reject(Socket socket, ComUtils com, String message) {
+        try {
+            if (com != null) {
+                new DataDisassembler(com).disassembleDatagram(FrameCache.error(message));
+            }
+        } catch (IOException ex) {
+            System.out.println(ex.getMessage());
+        }
+        finally {
+            close(socket);
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            System.out.println("Socket not recognized");
+        }
+    }
+
+    /**
+     * Player in the waiting room
+     */
+    private static class Candidate {
+        private final Socket socket;
+        private final ComUtils com;
+        private final Datagram strt;
+        private final long since;
+
+        Candidate(Socket socket, ComUtils com, Datagram strt) {
+            this.socket = socket;
+            this.com = com;
+            this.strt = strt;
+            this.since = System.currentTimeMillis();
+        }
+
+        /**
+         * Checks that the player has not closed the connection while waiting. A player
+         * is not expected to send anything before the game starts, so a byte received
+         * is taken as a broken client too
+         * @return true if the connection is still open
+         */
+        boolean isConnected() {
+            try {
+                socket.setSoTimeout(1);
+                try {
+                    socket.getInputStream().read();
+                    return false;
+                } catch (SocketTimeoutException ex) {
+                    socket.setSoTimeout(0);
+                    return true;
+                }
+            } catch (IOException ex) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package Communications;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import utils.Datagram;
+import utils.DatagramCodec;
+import utils.DatagramParser;
+import utils.FrameCache;
+import utils.Exceptions.DatagramSyntacticException;
+
+/**
+ * Non-blocking connection of one player. It feeds the bytes received from the
+ * channel to a resumable parser (datagrams may arrive split across reads) and keeps the encoded datagrams
+ * that could not be written at once
+ * @author Oriol-Manu
+ */
+public class NioConnection {
+
+    /**
+     * Size of the input buffer and initial size of the output buffer (it grows if
+     * the datagrams queued do not fit)
+     */
+    public static final int BUFFER_SIZE = 256;
+
+    /**
+     * Maximum time in milliseconds a closing connection waits for the peer to read
+     * the queued datagrams
+     */
+    public static final long CLOSE_TIMEOUT = 10 * 1000;
+
+    private final SocketChannel channel;
+    private final DatagramCodec codec;
+    private final DatagramParser parser;
+    private final ByteBuffer in;
+    private ByteBuffer out;
+    private SelectionKey key;
+    private NioTable table;
+    private int player;
+    private boolean closing;
+    private long closeDeadline;
+
+    /**
+     * Constructor creating the buffers where datagrams are decoded from and encoded to
+     * @param channel non-blocking channel of the player
+     */
+    public NioConnection(SocketChannel channel) {
+        this.channel = channel;
+        this.codec = new DatagramCodec();
+        this.parser = new DatagramParser();
+        this.in = ByteBuffer.allocate(BUFFER_SIZE);
+        this.out = ByteBuffer.allocate(BUFFER_SIZE);
+        this.closing = false;
+    }
+
+    /**
+     * Registers the channel for reading in the given event loop
+     * @param loop event loop owning this connection
+     * @param table table this connection belongs to
+     * @param player position of the player in the table (0 or 1)
+     * @throws IOException if the channel cannot be registered
+     */
+    public void register(EventLoop loop, NioTable table, int player) throws IOException {
+        this.table = table;
+        this.player = player;
+        this.key = channel.register(loop.getSelector(), SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * @return table this connection belongs to
+     */
+    public NioTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return position of the player in the table (0 or 1)
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Reads the available bytes from the channel (up to the size of the input buffer,
+     * the rest are read in the next readiness event)
+     * @return false if the peer has closed the connection, true otherwise
+     * @throws IOException if the channel is not available
+     */
+    public boolean read() throws IOException {
+        return channel.read(in) != -1;
+    }
+
+    /**
+     * Assembles the next datagram if all its bytes have already been received. The
+     * bytes of an incomplete datagram are kept by the parser
+     * @return the datagram assembled or null if more bytes are needed
+     * @throws DatagramSyntacticException if the command received is not well built
+     */
+    public Datagram nextDatagram() throws DatagramSyntacticException {
+        in.flip();
+        try {
+            return parser.parse(in);
+        } finally {
+            in.compact();
+        }
+    }
+
+    /**
+     * Encodes the datagram and writes it to the channel (or queues it if the channel
+     * cannot accept more bytes right now)
+     * @param d datagram to be sent
+     * @throws IOException if the channel is not available
+     */
+    public void send(Datagram d) throws IOException {
+        int start = out.position();
+        boolean encoded = false;
+        while (!encoded) {
+            try {
+                codec.encode(d, out);
+                encoded = true;
+            } catch (BufferOverflowException ex) {
+                out.position(start);
+                out = grow(out);
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Writes as many queued bytes as possible, subscribing to write readiness if the
+     * queue could not be drained
+     * @throws IOException if the channel is not available
+     */
+    public void flush() throws IOException {
+        out.flip();
+        try {
+            channel.write(out);
+            if (out.hasRemaining()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+        } finally {
+            out.compact();
+        }
+        if (key.isValid()) {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+        if (closing) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Sends an error to a player not sat at any table yet and closes the channel (the
+     * error is lost if the channel cannot take it at once, since it has no event loop)
+     * @param message message of the error
+     */
+    public void reject(String message) {
+        try {
+            codec.encode(FrameCache.error(message), out);
+            out.flip();
+            channel.write(out);
+        } catch (IOException ex) {
+            System.out.println(ex.getMessage());
+        } finally {
+            out.clear();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                System.out.println(ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Closes the channel once all queued datagrams have been written
+     * @throws IOException if the channel is not available
+     */
+    public void close() throws IOException {
+        closing = true;
+        closeDeadline = System.currentTimeMillis() + CLOSE_TIMEOUT;
+        if (key != null) {
+            key.interestOps(0);
+        }
+        if (out.position() == 0) {
+            channel.close();
+        }
+        else {
+            flush();
+        }
+    }
+
+    /**
+     * Closes the channel of a closing connection whose queued datagrams have not been
+     * written before the deadline (the peer does not read them)
+     * @param now current time in milliseconds
+     * @return true if the channel is closed
+     * @throws IOException if the channel cannot be closed
+     */
+    public boolean expire(long now) throws IOException {
+        if (closing && channel.isOpen() && now > closeDeadline) {
+            channel.close();
+        }
+        return !channel.isOpen();
+    }
+
+    /**
+     * @return true if the channel is still open
+     */
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Creates a buffer with double capacity and the same content
+     * @param b buffer in write mode
+     * @return the new buffer in write mode
+     */
+    private static ByteBuffer grow(ByteBuffer b) {
+        ByteBuffer bigger = ByteBuffer.allocate(b.capacity() * 2);
+        b.flip();
+        bigger.put(b);
+        return bigger;
+    }
+}
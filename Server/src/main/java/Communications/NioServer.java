@@ -0,0 +1,116 @@
+package Communications;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import utils.FrameCache;
+
+/**
+ * Server where a fixed number of event loops own all the sockets instead of having
+ * a thread for every client. The acceptor hands every table to the loops in turns
+ * @author Oriol-Manu
+ */
+public class NioServer {
+
+    private final int port;
+    private final int players;
+    private final EventLoop[] loops;
+    private int next;
+
+    /**
+     * Constructor starting the event loops (one for every available processor)
+     * @param port server's port
+     * @param players number of players for every table (1 or 2)
+     * @throws IOException if any selector cannot be opened
+     */
+    public NioServer(int port, int players) throws IOException {
+        this(port, players, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor starting the given number of event loops
+     * @param port server's port
+     * @param players number of players for every table (1 or 2)
+     * @param numLoops number of event loops
+     * @throws IOException if any selector cannot be opened
+     */
+    public NioServer(int port, int players, int numLoops) throws IOException {
+        this.port = port;
+        this.players = players;
+        this.loops = new EventLoop[numLoops];
+        this.next = 0;
+        for (int i = 0; i < numLoops; i++) {
+            loops[i] = new EventLoop();
+            loops[i].setName("EventLoop-" + i);
+            loops[i].start();
+        }
+    }
+
+    /**
+     * Accepts connections forever. In 2 player games, every 2 connections accepted
+     * are sat at the same table (a waiting player that has disconnected meanwhile is
+     * replaced by the new one, and one waiting longer than Matchmaker.MATCH_TIMEOUT
+     * is sent a "no opponent" error)
+     * @throws IOException if the port is not available
+     */
+    public void serve() throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        Selector acceptor = Selector.open();
+        server.register(acceptor, SelectionKey.OP_ACCEPT);
+
+        NioConnection waiting = null;
+        long since = 0;
+        while (true) {
+            acceptor.select(EventLoop.TICK);
+            acceptor.selectedKeys().clear();
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                channel.configureBlocking(false);
+                NioConnection c = new NioConnection(channel);
+                if (players == 1) {
+                    nextLoop().addTable(new NioTable1p(c, port));
+                }
+                else if (waiting == null || !isConnected(waiting)) {
+                    if (waiting != null) {
+                        waiting.close();
+                    }
+                    waiting = c;
+                    since = System.currentTimeMillis();
+                }
+                else {
+                    nextLoop().addTable(new NioTable2p(waiting, c));
+                    waiting = null;
+                }
+            }
+            if (waiting != null && System.currentTimeMillis() - since > Matchmaker.MATCH_TIMEOUT) {
+                waiting.reject(FrameCache.NO_OPPONENT);
+                waiting = null;
+            }
+        }
+    }
+
+    /**
+     * Reads what a player not registered yet has sent (the bytes are kept for its
+     * table) to know if it is still connected
+     * @param c connection of the player
+     * @return false if the player has closed the connection
+     */
+    private static boolean isConnected(NioConnection c) {
+        try {
+            return c.read();
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private EventLoop nextLoop() {
+        EventLoop loop = loops[next];
+        next = (next + 1) % loops.length;
+        return loop;
+    }
+}
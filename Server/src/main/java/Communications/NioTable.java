@@ -0,0 +1,222 @@
+package Communications;
+
+import Model.GameManager;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import utils.Datagram;
+import utils.FrameCache;
+import utils.Exceptions.DatagramSyntacticException;
+
+/**
+ * Game table driven by the readiness events of an event loop instead of a dedicated
+ * thread. Every type of table (depending on the type of game) have to extend this class
+ * @author Oriol-Manu
+ */
+public abstract class NioTable {
+
+    /**
+     * Maximum time in milliseconds a table can be waiting for a datagram
+     */
+    public static final long TURN_TIMEOUT = ClientHandler.TURN_TIMEOUT;
+
+    private static final AtomicInteger TABLES = new AtomicInteger();
+
+    /**
+     * Controller of the game (logic)
+     */
+    protected GameManager manager;
+
+    /**
+     * Connections of the players sitting at this table
+     */
+    protected final NioConnection[] connections;
+
+    /**
+     * Class to write the log of every datagram received or sent
+     */
+    protected LogWriter file;
+
+    /**
+     * Time in milliseconds when the table expires if no datagram is received
+     */
+    protected long deadline;
+
+    private boolean closed;
+
+    /**
+     * Constructor instatiating all common objects for every table
+     * @param connections connections of the players
+     */
+    public NioTable(NioConnection... connections) {
+        this.connections = connections;
+        this.closed = false;
+        this.deadline = System.currentTimeMillis() + TURN_TIMEOUT;
+        try {
+            file = new LogWriter(new File("ServerTable-" + TABLES.incrementAndGet() + ".log"));
+        } catch (IOException ex) {
+            System.out.println(ex.getMessage());
+        }
+    }
+
+    /**
+     * Registers every connection of the table in the event loop and treats the
+     * datagrams received before (e.g. while a player was waiting for an opponent)
+     * @param loop event loop owning this table
+     * @throws IOException if any channel cannot be registered
+     */
+    public void open(EventLoop loop) throws IOException {
+        for (int i = 0; i < connections.length; i++) {
+            connections[i].register(loop, this, i);
+        }
+        for (NioConnection c : connections) {
+            if (!closed) {
+                process(c);
+            }
+        }
+    }
+
+    /**
+     * Assembles and treats every complete datagram received by the connection
+     * @param c connection with new bytes available
+     * @throws IOException if any channel is not available
+     */
+    public void onReadable(NioConnection c) throws IOException {
+        if (!c.read()) {
+            onDisconnect(c);
+            close();
+            return;
+        }
+        process(c);
+    }
+
+    /**
+     * Treats every complete datagram already read from the connection
+     * @param c connection with bytes read
+     * @throws IOException if any channel is not available
+     */
+    private void process(NioConnection c) throws IOException {
+        try {
+            Datagram in = c.nextDatagram();
+            while (in != null && !closed) {
+                deadline = System.currentTimeMillis() + TURN_TIMEOUT;
+                onDatagram(c, in);
+                in = closed ? null : c.nextDatagram();
+            }
+        } catch (DatagramSyntacticException e) {
+            onError(c, e);
+        }
+    }
+
+    /**
+     * Treats a datagram received by the connection
+     * @param c connection that has received the datagram
+     * @param in datagram received
+     * @throws IOException if any channel is not available
+     */
+    protected abstract void onDatagram(NioConnection c, Datagram in) throws IOException;
+
+    /**
+     * Treats a syntactic or game logic error caused by the connection
+     * @param c connection that has caused the error
+     * @param e exception with the error
+     * @throws IOException if any channel is not available
+     */
+    protected abstract void onError(NioConnection c, Exception e) throws IOException;
+
+    /**
+     * Treats the connection being closed by the peer
+     * @param c connection closed
+     * @throws IOException if any channel is not available
+     */
+    protected abstract void onDisconnect(NioConnection c) throws IOException;
+
+    /**
+     * Closes the table if the deadline is overpassed
+     * @param now current time in milliseconds
+     * @throws IOException if any channel is not available
+     */
+    public void checkTimeout(long now) throws IOException {
+        if (!closed && now > deadline) {
+            sendAll(FrameCache.error(FrameCache.TIMEOUT));
+            close();
+        }
+    }
+
+    /**
+     * Closes the connections of a closed table that are still writing after their
+     * deadline
+     * @param now current time in milliseconds
+     * @return true if every connection is closed, so the table can be forgotten
+     */
+    public boolean expire(long now) {
+        boolean expired = true;
+        for (NioConnection c : connections) {
+            try {
+                expired &= c.expire(now);
+            } catch (IOException ex) {
+                System.out.println(ex.getMessage());
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Sends the datagram to the connection and writes it in the log
+     * @param c connection to send the datagram
+     * @param d datagram to be sent
+     * @throws IOException if the channel is not available
+     */
+    protected void send(NioConnection c, Datagram d) throws IOException {
+        c.send(d);
+        file.writeDatagram(d, 0);
+    }
+
+    /**
+     * Sends the datagram to every connection and writes it once in the log
+     * @param d datagram to be sent
+     * @throws IOException if any channel is not available
+     */
+    protected void sendAll(Datagram d) throws IOException {
+        for (NioConnection c : connections) {
+            c.send(d);
+        }
+        file.writeDatagram(d, 0);
+    }
+
+    /**
+     * Builds a protocol error datagram
+     * @param message message of the error
+     * @return the ERRO datagram
+     */
+    protected static Datagram error(String message) {
+        return FrameCache.error(FrameCache.PROTOCOL_ERROR + message);
+    }
+
+    /**
+     * @return true if the table has been closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes every connection (after writing the queued datagrams), the log file and
+     * releases the players
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            for (NioConnection c : connections) {
+                c.close();
+            }
+            file.closeFile();
+        } catch (IOException ex) {
+            System.out.println("Socket not recognized");
+        }
+        manager.releasePlayers();
+    }
+}
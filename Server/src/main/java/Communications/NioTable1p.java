@@ -0,0 +1,69 @@
+package Communications;
+
+import Exceptions.ActionNotAllowedException;
+import Model.GameManager1p;
+import java.io.IOException;
+import utils.Commands;
+import utils.Datagram;
+
+/**
+ * Table for a client playing versus the server. Same game flow as ClientHandler1p
+ * but driven by the event loop
+ * @author Oriol-Manu
+ */
+public class NioTable1p extends NioTable {
+
+    /**
+     * Constructor adding the port (needed since the server's ID is its port)
+     * @param connection connection of the player
+     * @param port server's port
+     */
+    public NioTable1p(NioConnection connection, int port) {
+        super(connection);
+        manager = new GameManager1p(port);
+    }
+
+    /**
+     * Executes the received datagram and sends every datagram emitted. The
+     * table is closed when the command is of type EXIT or ERRO
+     * @param c connection that has received the datagram
+     * @param in datagram received
+     * @throws IOException if the channel is not available
+     */
+    @Override
+    protected void onDatagram(NioConnection c, Datagram in) throws IOException {
+        file.writeDatagram(in, 1);
+        if (in.getType() == Commands.EXIT) {
+            close();
+            return;
+        }
+        try {
+            manager.executeAction(in, d -> send(c, d));
+        } catch (ActionNotAllowedException e) {
+            onError(c, e);
+        }
+        if (in.getType() == Commands.ERRO) {
+            close();
+        }
+    }
+
+    /**
+     * Sends an error datagram and closes the table
+     * @param c connection that has caused the error
+     * @param e exception with the error
+     * @throws IOException if the channel is not available
+     */
+    @Override
+    protected void onError(NioConnection c, Exception e) throws IOException {
+        send(c, error(e.getMessage()));
+        close();
+    }
+
+    /**
+     * Nothing to be sent, the only player has left
+     * @param c connection closed
+     */
+    @Override
+    protected void onDisconnect(NioConnection c) {
+    }
+}
@@ -0,0 +1,128 @@
+package Communications;
+
+import Exceptions.ActionNotAllowedException;
+import Model.GameManager2p;
+import java.io.IOException;
+import utils.Commands;
+import utils.Datagram;
+import utils.FrameCache;
+import utils.ParamNames;
+
+/**
+ * Table for two clients playing versus each other. Same game flow as ClientHandler2p
+ * but every datagram is treated as soon as it arrives from any of both players
+ * @author Oriol-Manu
+ */
+public class NioTable2p extends NioTable {
+
+    private final Datagram[] first;
+    private boolean started;
+
+    /**
+     * Constructor with the connections of both players
+     * @param connection1 connection of the first player
+     * @param connection2 connection of the second player
+     */
+    public NioTable2p(NioConnection connection1, NioConnection connection2) {
+        super(connection1, connection2);
+        manager = new GameManager2p();
+        first = new Datagram[2];
+        started = false;
+    }
+
+    /**
+     * Waits for the first datagram of both players (executing the first player's one
+     * first, as the game logic expects). A player sending another datagram meanwhile
+     * is answered with an error. Then, every datagram is executed on behalf
+     * of the player who has sent it and the datagrams obtained are sent to their
+     * receivers. If a player sends an EXIT or ERRO command, the opponent is notified
+     * and the table is closed
+     * @param c connection that has received the datagram
+     * @param in datagram received
+     * @throws IOException if any channel is not available
+     */
+    @Override
+    protected void onDatagram(NioConnection c, Datagram in) throws IOException {
+        if (!started) {
+            if (first[c.getPlayer()] != null) {
+                send(c, error("Wait for the opponent"));
+                return;
+            }
+            first[c.getPlayer()] = in;
+            if (first[0] != null && first[1] != null) {
+                started = true;
+                file.writeDatagram(first[0], 2);
+                file.writeDatagram(first[1], 3);
+                execute(connections[0], first[0]);
+                if (!isClosed()) {
+                    execute(connections[1], first[1]);
+                }
+            }
+            return;
+        }
+        file.writeDatagram(in, c.getPlayer() + 2);
+        execute(c, in);
+    }
+
+    private void execute(NioConnection c, Datagram in) throws IOException {
+        if (in.getType() == Commands.EXIT || in.getType() == Commands.ERRO) {
+            if (in.getType() == Commands.ERRO) {
+                System.out.println(in.getParams().getString(ParamNames.MESSAGE));
+            }
+            onDisconnect(c);
+            close();
+            return;
+        }
+        try {
+            ((GameManager2p)manager).executeAction(in, c.getPlayer(), this::route);
+        } catch (ActionNotAllowedException e) {
+            onError(c, e);
+        }
+    }
+
+    /**
+     * Sends a datagram emitted by the game logic to its receiver (both players if
+     * the receiver is 2) and writes it to the log
+     * @param d datagram to be sent
+     * @throws IOException if any channel is not available
+     */
+    private void route(Datagram d) throws IOException {
+        switch (d.getParams().getInt(ParamNames.RECEIVER)) {
+            case 0:
+                connections[0].send(d);
+                break;
+            case 1:
+                connections[1].send(d);
+                break;
+            default:
+                connections[0].send(d);
+                connections[1].send(d);
+                break;
+        }
+        file.writeDatagram(d, 0);
+    }
+
+    /**
+     * Sends an error datagram to both players (the game goes on)
+     * @param c connection that has caused the error
+     * @param e exception with the error
+     * @throws IOException if any channel is not available
+     */
+    @Override
+    protected void onError(NioConnection c, Exception e) throws IOException {
+        sendAll(error(e.getMessage()));
+    }
+
+    /**
+     * Tells the opponent that the player has disconnected
+     * @param c connection of the player that has left
+     * @throws IOException if the opponent's channel is not available
+     */
+    @Override
+    protected void onDisconnect(NioConnection c) throws IOException {
+        NioConnection opponent = connections[1 - c.getPlayer()];
+        if (opponent.isOpen()) {
+            send(opponent, FrameCache.error(FrameCache.OPPONENT_DISCONNECTED));
+        }
+    }
+}
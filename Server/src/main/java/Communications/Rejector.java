@@ -0,0 +1,70 @@
+package Communications;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small pool of threads sending the "server busy" errors, so the acceptor never
+ * writes to a refused socket and keeps accepting during a storm of connections. An
+ * error not written in REJECT_TIMEOUT is aborted and, when all the threads are busy,
+ * the socket is aborted at once without the error
+ * @author Oriol-Manu
+ */
+public class Rejector {
+
+    /**
+     * Maximum time in milliseconds the busy error can take to be written
+     */
+    public static final long REJECT_TIMEOUT = 1000;
+
+    /**
+     * Threads writing the errors
+     */
+    public static final int THREADS = 2;
+
+    /**
+     * Refusals waiting for a free thread (the rest are aborted)
+     */
+    public static final int QUEUED = 256;
+
+    private final ThreadPoolExecutor writers;
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Constructor creating the writing threads (they are created when needed)
+     */
+    public Rejector() {
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, "session-rejector");
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.writers = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUED), factory);
+        writers.allowCoreThreadTimeOut(true);
+        this.timer = Executors.newSingleThreadScheduledExecutor(factory);
+    }
+
+    /**
+     * Refuses a connection without blocking the caller
+     * @param write sends the error and closes the connection
+     * @param abort closes the connection at once
+     */
+    public void reject(Runnable write, Runnable abort) {
+        try {
+            writers.execute(() -> {
+                ScheduledFuture<?> timeout = timer.schedule(abort, REJECT_TIMEOUT, TimeUnit.MILLISECONDS);
+                write.run();
+                timeout.cancel(false);
+            });
+        } catch (RejectedExecutionException ex) {
+            abort.run();
+        }
+    }
+}
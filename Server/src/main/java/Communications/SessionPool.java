@@ -0,0 +1,101 @@
+package Communications;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import utils.FrameCache;
+
+/**
+ * Bounded pool of sessions. At most a fixed number of sessions are played at the
+ * same time and a bounded number of accepted sessions wait for a free slot. When
+ * both are full, the new session is refused with a "server busy" error instead
+ * of degrading the games already being played. The error is written by a Rejector,
+ * so the accepting thread never waits for a refused client. Every slot has a
+ * companion thread for the sessions needing a second one (the reader of the second
+ * player of a 2 player game), so they are counted too
+ * @author Oriol-Manu
+ */
+public class SessionPool implements Executor {
+
+    /**
+     * Message sent to the clients refused because the pool is saturated
+     */
+    public static final String BUSY_MESSAGE = FrameCache.SERVER_BUSY;
+
+    private final ThreadPoolExecutor pool;
+    private final ThreadPoolExecutor companions;
+    private final Rejector rejector;
+
+    /**
+     * Constructor creating the pool
+     * @param sessions maximum number of sessions played at the same time
+     * @param queued maximum number of sessions waiting for a free slot (0 for none)
+     * @param factory factory of the threads running the sessions
+     */
+    public SessionPool(int sessions, int queued, ThreadFactory factory) {
+        BlockingQueue<Runnable> waiting = queued > 0 ? new ArrayBlockingQueue<>(queued) : new SynchronousQueue<>();
+        this.companions = new ThreadPoolExecutor(sessions, sessions, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), factory);
+        this.rejector = new Rejector();
+        this.pool = new ThreadPoolExecutor(sessions, sessions, 0L, TimeUnit.MILLISECONDS,
+                waiting, factory, new BusyHandler());
+    }
+
+    /**
+     * Runs the session when there is a free slot (or refuses it if the pool is saturated)
+     * @param session client handler to be run
+     */
+    @Override
+    public void execute(Runnable session) {
+        pool.execute(session);
+    }
+
+    /**
+     * Runs a task helping a session being played (e.g. the reader of the second player
+     * of a 2 player game) in one of the companion threads. There are as many as slots
+     * and a session waits for its companion before ending, so the task never waits
+     * long and the pool never runs more than two threads per slot
+     * @param task task of the session
+     */
+    public void executeCompanion(Runnable task) {
+        companions.execute(task);
+    }
+
+    /**
+     * @return number of sessions being played right now
+     */
+    public int getActiveSessions() {
+        return pool.getActiveCount();
+    }
+
+    /**
+     * @return number of sessions waiting for a free slot
+     */
+    public int getQueuedSessions() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Refuses the sessions that do not fit in the pool
+     */
+    private class BusyHandler implements RejectedExecutionHandler {
+
+        /**
+         * Hands the session to the rejector, which sends the busy error to its clients
+         * and closes it (the socket is aborted if the error is not written in time)
+         * @param r session refused
+         * @param executor pool that has refused the session
+         */
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            ClientHandler session = (ClientHandler) r;
+            rejector.reject(() -> session.reject(BUSY_MESSAGE), session::abort);
+        }
+    }
+}
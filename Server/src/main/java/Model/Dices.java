@@ -6,99 +6,124 @@ import utils.Exceptions.NextStateNotDefinedException;
 import Exceptions.RollLimitOverpassedException;
 import Exceptions.TakenDiceException;
 
-import java.util.ArrayList;
 import utils.DataAssembler;
+import utils.DiceHand;
 
 /**
- * Array of 5 dices
+ * Array of 5 dices. The values are kept packed as a DiceHand and the dices taken,
+ * the number of rolls and the state are packed in a second integer, so the dices
+ * are reused from a round to the next one without any allocation
  * @author Oriol-Manu
  */
 public class Dices{
 
-    private final ArrayList<Dice> dices;
-    private int num_rolls;
-    private DicesState state;
+    private static final int ROLLS_SHIFT = DataAssembler.NUM_DICES;
+    private static final int STATE_SHIFT = ROLLS_SHIFT + 2;
+    private static final int ROLLS_MASK = 3;
+    private static final DicesState[] STATES = DicesState.values();
+    private static final int NOT_ROLLED = DiceHand.of(new int[DataAssembler.NUM_DICES]);
+
+    private int hand;
+    private int status;
 
     /**
      * Constructor inizialting the 5 dices and state
      */
     public Dices() {
-        this.dices = new ArrayList<>();
-        for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
-            this.dices.add(new Dice());
-        }
-        this.num_rolls = 0;
-        this.state = DicesState.NONE;
+        reset();
     }
 
     /**
-     * @return array of dices
+     * Leaves the dices as new: not rolled, not taken and without state
      */
-    public ArrayList<Dice> getDices() {
-        return dices;
+    public void reset() {
+        this.hand = NOT_ROLLED;
+        this.status = DicesState.NONE.ordinal() << STATE_SHIFT;
     }
-    
+
     /**
-     * @return array of dice's values
+     * @return dice's values packed as a DiceHand
      */
-    public ArrayList<Integer> getIntDices() {
-        ArrayList<Integer> arrDices = new ArrayList<>();
-        this.dices.forEach((dice) -> {
-            arrDices.add(dice.getValue());
-        });
-        return arrDices;
+    public int getHand() {
+        return hand;
     }
 
     /**
-     * Rolls the five dices
+     * Rolls the five dices with the shared random service
      * @throws RollLimitOverpassedException if the dices have been rolled already three times
      */
     public void rollDices() throws RollLimitOverpassedException {
+        rollDices(RandomService.shared());
+    }
+
+    /**
+     * Rolls the five dices (the dices taken keep their value)
+     * @param random service giving the values rolled
+     * @throws RollLimitOverpassedException if the dices have been rolled already three times
+     */
+    public void rollDices(RandomService random) throws RollLimitOverpassedException {
 
-        if(num_rolls < DataAssembler.MAX_ROLLS){
+        int rolls = getRolls();
+        if(rolls < DataAssembler.MAX_ROLLS){
+            int rolled = random.rollDices();
+            int newHand = DiceHand.EMPTY;
             for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
-                this.dices.get(i).rollDice();
+                newHand = DiceHand.add(newHand, isTaken(i) ? getValue(i) : DiceHand.get(rolled, i));
             }
+            this.hand = newHand;
         }else{
             throw new RollLimitOverpassedException();
         }
 
-        this.num_rolls = this.num_rolls + 1;
+        this.status = (this.status & ~(ROLLS_MASK << ROLLS_SHIFT)) | ((rolls + 1) << ROLLS_SHIFT);
     }
 
     /**
-     * @param dice integer position in the array list
-     * @return dice corresponding to the provided position
+     * @param dice integer position of the dice
+     * @return value of the dice (0 if not rolled yet)
      */
-    public Dice getDice (int dice){
-        return dices.get(dice);
+    public int getValue(int dice) {
+        return DiceHand.get(hand, dice);
+    }
+
+    /**
+     * @param dice integer position of the dice
+     * @return true if this dice is already taken, false otherwise
+     */
+    public boolean isTaken(int dice) {
+        return (status & (1 << dice)) != 0;
     }
 
     /**
      * @return int corresponding to the number of dices
      */
     public int size(){
-        return this.dices.size();
+        return DataAssembler.NUM_DICES;
     }
 
     /**
      * Method to take the specified dices
-     * @param dicePosition array list with the positions of the dices to take
-     * @param size number of dices to take
+     * @param dicePosition positions of the dices to take packed as a DiceHand
      * @throws NextStateNotDefinedException if there is no defined next state of the dices (i.e we are already in crew state at the game)
      * @throws TakenDiceException if the dice is already taken
      * @throws ErrorDiceChoice if the specified dice can not be chosen
      */
-    public void takeDices(ArrayList<Integer> dicePosition, int size) throws NextStateNotDefinedException, TakenDiceException, ErrorDiceChoice {
+    public void takeDices(int dicePosition) throws NextStateNotDefinedException, TakenDiceException, ErrorDiceChoice {
 
+        int size = DiceHand.size(dicePosition);
         int it = 0;
         int taken = 0;
 
         while(it < size && taken < size) {
             for(int i = 0; i<size; i++){
-                if (this.dices.get(dicePosition.get(i)-1).getValue() == state.nextValue()) {
-                    this.dices.get(dicePosition.get(i)-1).take();
-                    this.state = this.state.nextState();
+                int dice = DiceHand.get(dicePosition, i)-1;
+                DicesState state = getState();
+                if (getValue(dice) == state.nextValue()) {
+                    if (isTaken(dice)) {
+                        throw new TakenDiceException();
+                    }
+                    this.status |= 1 << dice;
+                    setState(state.nextState());
                     taken++;
                 }
             }
@@ -112,56 +137,48 @@ public class Dices{
     }
 
     /**
+     * Takes the ship, captain and crew found in the last roll (if not taken yet)
+     * and gives the score. The result is found in the precomputed ScoreTable
      * @return int corresponding to the score (0 if the state is not crew and sum of
      * remaining dices)
      */
     public int getScore(){
-        int score = 0;
-        if (state != DicesState.CREW) {
-            ArrayList<Integer> arrDices = new ArrayList<>();
-            DicesState state_aux = state;
-            boolean take = true;
-            while (take) {
-                take = false;
-                for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
-                    if (this.dices.get(i).getValue() == state_aux.nextValue()) {
-                        arrDices.add(i+1);
-                        take = true;
-                        try {
-                            state_aux = state_aux.nextState();
-                        } catch (NextStateNotDefinedException ex) {
-                            break;
-                        }
-                    }
-                }
-            }
-            try {
-                takeDices(arrDices, arrDices.size());
-            } catch (NextStateNotDefinedException | TakenDiceException | ErrorDiceChoice ex) {
-            }
+        if (getRolls() == 0) {
+            return 0;
         }
-        if(this.state == DicesState.CREW){
-            for(int i = 0; i < DataAssembler.NUM_DICES; i++){
-                if(!dices.get(i).isTaken()){
-                    score = score + dices.get(i).getValue();
-                }
-            }
-        }
-        return score;
+        int entry = ScoreTable.lookup(getState(), ScoreTable.code(hand));
+        this.status |= ScoreTable.taken(entry);
+        setState(ScoreTable.state(entry));
+        return ScoreTable.score(entry);
+    }
+
+    /**
+     * @return number of rolls left
+     */
+    public int getRollsLeft(){
+        return DataAssembler.MAX_ROLLS - getRolls();
     }
 
     /**
      * @return Boolean object. True if we can roll again
      */
     public boolean canRoll(){
-        return num_rolls < DataAssembler.MAX_ROLLS;
+        return getRolls() < DataAssembler.MAX_ROLLS;
     }
 
     /**
      * @return state of the dices
      */
     public DicesState getState(){
-        return this.state;
+        return STATES[this.status >>> STATE_SHIFT];
+    }
+
+    private int getRolls() {
+        return (this.status >>> ROLLS_SHIFT) & ROLLS_MASK;
+    }
+
+    private void setState(DicesState state) {
+        this.status = (this.status & ((1 << STATE_SHIFT) - 1)) | (state.ordinal() << STATE_SHIFT);
     }
 
 }
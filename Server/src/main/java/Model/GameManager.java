@@ -1,11 +1,10 @@
 package Model;
 
 import Exceptions.ActionNotAllowedException;
-import java.util.ArrayList;
-import utils.Commands;
+import java.io.IOException;
 import utils.Datagram;
+import utils.DatagramSink;
 
-import java.util.HashMap;
 import utils.ParamNames;
 
 /**
@@ -14,11 +13,6 @@ import utils.ParamNames;
  */
 public abstract class GameManager {
 
-    /**
-     * HashMap for the selector patters given the command
-     */
-    protected final HashMap<Commands,GameActionCommand> actions;
-
     /**
      * State of the game
      */
@@ -40,13 +34,30 @@ public abstract class GameManager {
     protected Player player1;
 
     /**
-     * Constructor building the hashmap
+     * Service giving the random values of the game
+     */
+    protected RandomService random;
+
+    /**
+     * Action printing the errors received (allowed at every state)
+     */
+    protected static final GameActionCommand<GameManager> ERRO_ACTION = new ErroAction();
+
+    /**
+     * Constructor of a game waiting for its players
      */
     public GameManager() {
-        this.actions = new HashMap<>();
-        this.actions.put(Commands.ERRO, new ErroAction());
         this.state = GameState.WAITING;
         this.loot = 0;
+        this.random = RandomService.shared();
+    }
+
+    /**
+     * Changes the random service of the game (e.g. a seeded one to replay a game)
+     * @param random service giving the random values of the game
+     */
+    public void setRandom(RandomService random) {
+        this.random = random;
     }
 
     /**
@@ -64,82 +75,57 @@ public abstract class GameManager {
     }
 
     /**
-     * Interface to be implemented for every command action method
+     * Releases the players claimed by this game (a player claimed by another game
+     * is not released)
      */
-    private interface GameActionCommand{
-        public ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException;
+    public void releasePlayers() {
+        if (player1 != null) {
+            player1.release(this);
+        }
     }
 
     /**
-     * Executes the corresponding game action depending on the state and the datagram object received
-     * @param datagram The datagram object obtained from assembling the socket protocol command received
-     * @return An array list of datagram responses to a certain action
-     * @throws ActionNotAllowedException If the datagram does is not executable at the current state
+     * Interface to be implemented for every command action method. The actions
+     * do not keep any state, the game is given on every call, so they are shared
+     * by all the games
+     * @param <M> kind of game executing the action
      */
-    public ArrayList<Datagram> executeAction(Datagram datagram) throws ActionNotAllowedException {
-        return actions.get(datagram.getType()).execute(datagram);
-    }
-
-    protected abstract class StrtAction  implements GameActionCommand{
-
-        /**
-         * Creates an array of datagram as a response of a STRT command received
-         * @param d last datagram received
-         * @return array of datagram to be sended to clients
-         * @throws ActionNotAllowedException if this command is not possible according to the current state
-         */
-        @Override
-        public abstract ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException;
-    }
-
-    protected abstract class BettAction  implements GameActionCommand{
+    protected interface GameActionCommand<M extends GameManager> {
 
         /**
-         * Creates an array of datagram as a response of a BETT command received
+         * Emits the datagrams answering the command received
+         * @param game game executing the action
          * @param d last datagram received
-         * @return array of datagram to be sended to clients
+         * @param out sink of the datagrams to be sended to clients
          * @throws ActionNotAllowedException if this command is not possible according to the current state
+         * @throws IOException if a datagram cannot be sent
          */
-        @Override
-        public abstract ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException;
+        public void execute(M game, Datagram d, DatagramSink out) throws ActionNotAllowedException, IOException;
     }
 
-    protected abstract class TakeAction  implements GameActionCommand{
+    /**
+     * Executes the corresponding game action depending on the state and the datagram object received.
+     * The action is found in the transition table of the game, so a command not allowed at the
+     * current state is rejected before anything is emitted. The responses are emitted to the sink
+     * as soon as they are produced
+     * @param datagram The datagram object obtained from assembling the socket protocol command received
+     * @param out The sink receiving the datagram responses to a certain action
+     * @throws ActionNotAllowedException If the datagram does is not executable at the current state
+     * @throws IOException If a response cannot be sent
+     */
+    public abstract void executeAction(Datagram datagram, DatagramSink out) throws ActionNotAllowedException, IOException;
 
-        /**
-         * Creates an array of datagram as a response of a TAKE command received
-         * @param d last datagram received
-         * @return array of datagram to be sended to clients
-         * @throws ActionNotAllowedException if this command is not possible according to the current state
-         */
-        @Override
-        public abstract ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException;
-    }
-    
-    protected abstract class PassAction  implements GameActionCommand{
+    private static class ErroAction implements GameActionCommand<GameManager> {
 
         /**
-         * Creates an array of datagram as a response of a PASS command received
+         * Prints the error (nothing is emitted)
+         * @param game game executing the action
          * @param d last datagram received
-         * @return array of datagram to be sended to clients
-         * @throws ActionNotAllowedException if this command is not possible according to the current state
-         */
-        @Override
-        public abstract ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException;
-    }
-    
-    private class ErroAction implements GameActionCommand {
-        
-        /**
-         * Prints the error and returns an emtpy list
-         * @param d last datagram received
-         * @return array of datagram to be sended to clients
-         * @throws ActionNotAllowedException if this command is not possible according to the current state
+         * @param out sink of the datagrams to be sended to clients
          */
         @Override
-        public ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException {
-            System.out.println(d.getParams().getStringParameter().get(ParamNames.MESSAGE.name()));
-            return new ArrayList<>();
+        public void execute(GameManager game, Datagram d, DatagramSink out) {
+            System.out.println(d.getParams().getString(ParamNames.MESSAGE));
         }
     }
 }
@@ -6,10 +6,10 @@ import Exceptions.ErrorDiceChoice;
 import utils.Exceptions.NextStateNotDefinedException;
 import Exceptions.RollLimitOverpassedException;
 import Exceptions.TakenDiceException;
-import java.util.ArrayList;
-import java.util.Random;
+import java.io.IOException;
 import utils.Commands;
 import utils.Datagram;
+import utils.DatagramSink;
 import utils.ParamNames;
 
 /**
@@ -18,57 +18,85 @@ import utils.ParamNames;
  */
 public class GameManager1p extends GameManager {
 
+    /**
+     * Actions allowed at every state, shared by all 1 player games
+     */
+    private static final TransitionTable<GameManager1p> TABLE = new TransitionTable.Builder<GameManager1p>()
+            .allow(GameState.WAITING, Commands.STRT, new StrtAction())
+            .allow(GameState.STARTED, Commands.BETT, new BettAction())
+            .allow(GameState.BET, Commands.TAKE, new TakeAction())
+            .allow(GameState.BET, Commands.PASS, new PassAction())
+            .allowAlways(Commands.ERRO, ERRO_ACTION)
+            .reject(Commands.STRT, "The game is already started")
+            .reject(Commands.BETT, "Betting not allowed here")
+            .reject(Commands.TAKE, "Taking not allowed here")
+            .reject(Commands.PASS, "Pass not allowed here")
+            .build();
+
     private final Player server;
+    private final PlayersList players;
+    private Strategy strategy;
     
     /**
-     * Constructor building the HashMap
+     * Constructor of a game versus the server
      * @param port server's port used as server's ID
      */
     public GameManager1p(int port) {
+        this(port, PlayersList.getInstance());
+    }
+
+    /**
+     * Constructor of a game versus the server whose players are claimed in the given registry
+     * @param port server's port used as server's ID
+     * @param players registry of the players
+     */
+    public GameManager1p(int port, PlayersList players) {
         super();
-        actions.put(Commands.TAKE,new TakeAction());
-        actions.put(Commands.PASS, new PassAction());
-        actions.put(Commands.STRT, new StrtAction());
-        actions.put(Commands.BETT, new BettAction());
         this.server = new Player(port);
+        this.players = players;
+        this.strategy = Strategy.OPTIMAL;
+    }
+
+    /**
+     * Changes the strategy of the server as a player
+     * @param strategy strategy deciding when the server passes
+     */
+    public void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    @Override
+    public void executeAction(Datagram datagram, DatagramSink out) throws ActionNotAllowedException, IOException {
+        TABLE.execute(this, state, datagram, out);
     }
 
     /**
      * Creates a player with the ID given in the Datagram and send a CASH datagram
      */
-    private class StrtAction extends GameManager.StrtAction {
+    private static class StrtAction implements GameActionCommand<GameManager1p> {
         @Override
-        public ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException {
-            if (state != GameState.WAITING) {
-                throw new ActionNotAllowedException("The game is already started");
-            }
+        public void execute(GameManager1p game, Datagram d, DatagramSink out) throws ActionNotAllowedException, IOException {
             
 
-            int id = d.getParams().getIntParameter().get(ParamNames.ID.name());
-            ArrayList<Datagram> dg = new ArrayList<>();
+            int id = d.getParams().getInt(ParamNames.ID);
 
-            PlayersList pList = PlayersList.getInstance();
-            synchronized(this) {
-                player1 = pList.getPlayer(id);
-                if (player1.isConnected()) {
-                    Datagram.Builder db = new Datagram.Builder();
-                    db.withType(Commands.ERRO);
-                    db.addParam(ParamNames.MESSAGE.name(), "This id is already playing");
-                    dg.add(db.build());
-                    return dg;
-                }
-                player1.connect();
+            Player player = game.players.claimPlayer(id, game);
+            if (player == null) {
+                Datagram.Builder db = new Datagram.Builder();
+                db.withType(Commands.ERRO);
+                db.addParam(ParamNames.MESSAGE, "This id is already playing");
+                out.emit(db.build());
+                return;
             }
-            player1.giveNewDices();
+            game.player1 = player;
+            game.player1.giveNewDices();
             
             
             Datagram.Builder db = new Datagram.Builder();
             db.withType(Commands.CASH);
-            db.addParam(ParamNames.COINS.name(), player1.getGems());
-            dg.add(db.build());
-            state = GameState.STARTED;
-            
-            return dg;
+            db.addParam(ParamNames.COINS, game.player1.getGems());
+            out.emit(db.build());
+            game.state = GameState.STARTED;
         }
     }
 
@@ -76,45 +104,37 @@ public class GameManager1p extends GameManager {
      * Places a bet and sends a LOOT, PLAY and DICE datagram (and all server's actions
      * if the server is first)
      */
-    private class BettAction extends GameManager.BettAction {
+    private static class BettAction implements GameActionCommand<GameManager1p> {
         @Override
-        public ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException {
-            if (state != GameState.STARTED) {
-                throw new ActionNotAllowedException("Betting not allowed here");
-            }
+        public void execute(GameManager1p game, Datagram d, DatagramSink out) throws ActionNotAllowedException, IOException {
             try {
-                player1.bet(Player.INITIAL_BET);
-                loot += Player.INITIAL_BET*2;
-                
-                ArrayList<Datagram> dg = new ArrayList<>();
+                game.player1.bet(Player.INITIAL_BET);
+                game.loot += Player.INITIAL_BET*2;
                 Datagram.Builder db = new Datagram.Builder();
                 db.withType(Commands.LOOT);
-                db.addParam(ParamNames.COINS.name(), loot);
-                dg.add(db.build());
+                db.addParam(ParamNames.COINS, game.loot);
+                out.emit(db.build());
                 
-                Random r = new Random();
-                first_player = r.nextInt(2);
+                game.first_player = game.random.flipCoin();
                 db = new Datagram.Builder();
                 db.withType(Commands.PLAY);
-                db.addParam(ParamNames.PLAYER.name(), first_player);
-                dg.add(db.build());
+                db.addParam(ParamNames.PLAYER, game.first_player);
+                out.emit(db.build());
                 
-                if (first_player == 1) {
-                    dg.addAll(ServerIA.play(server, 0));
+                if (game.first_player == 1) {
+                    ServerIA.play(game.server, StrategyTable.NO_TARGET, game.strategy, game.random, out);
                 }
                 db = new Datagram.Builder();
                 db.withType(Commands.DICE);
-                db.addParam(ParamNames.ID.name(), player1.getId());
-                player1.getDices().rollDices();
-                db.addParam(ParamNames.DICES.name(), player1.getDices().getIntDices());
-                dg.add(db.build());
+                db.addParam(ParamNames.ID, game.player1.getId());
+                game.player1.getDices().rollDices(game.random);
+                db.addHand(ParamNames.DICES, game.player1.getDices().getHand());
+                out.emit(db.build());
                 
-                state = GameState.BET;
-                return dg;
+                game.state = GameState.BET;
             } catch (BetException | RollLimitOverpassedException ex) {
                 throw new ActionNotAllowedException(ex.getMessage());
             }
-             
         }
     }
     
@@ -122,28 +142,22 @@ public class GameManager1p extends GameManager {
      * Take the given dices in the datagram and sends a DICE datagram (if the game is finished,
      * it also sends all finishing datagrams)
      */
-    private class TakeAction extends GameManager.TakeAction {
+    private static class TakeAction implements GameActionCommand<GameManager1p> {
         @Override
-        public ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException {
-            if (state != GameState.BET) {
-                throw new ActionNotAllowedException("Taking not allowed here");
-            }
+        public void execute(GameManager1p game, Datagram d, DatagramSink out) throws ActionNotAllowedException, IOException {
             try {
-                player1.getDices().takeDices(d.getParams().getArrayParameter().get(ParamNames.DICES.name()), d.getParams().getArrayParameter().get(ParamNames.DICES.name()).size());
-                
-                ArrayList<Datagram> dg = new ArrayList<>();
+                game.player1.getDices().takeDices(d.getParams().getHand(ParamNames.DICES));
                 Datagram.Builder db = new Datagram.Builder();
                 db.withType(Commands.DICE);
-                db.addParam(ParamNames.ID.name(), player1.getId());
-                player1.getDices().rollDices();
-                db.addParam(ParamNames.DICES.name(), player1.getDices().getIntDices());
-                dg.add(db.build());
+                db.addParam(ParamNames.ID, game.player1.getId());
+                game.player1.getDices().rollDices(game.random);
+                db.addHand(ParamNames.DICES, game.player1.getDices().getHand());
+                out.emit(db.build());
                 
-                if (!player1.getDices().canRoll()) {
-                    dg.addAll(finishGame());
+                if (!game.player1.getDices().canRoll()) {
+                    game.finishGame(out);
                 }
                 
-                return dg;
             } catch (NextStateNotDefinedException | TakenDiceException | ErrorDiceChoice | RollLimitOverpassedException ex) {
                 throw new ActionNotAllowedException(ex.getMessage());
             }
@@ -153,32 +167,32 @@ public class GameManager1p extends GameManager {
     /**
      * Finishes the game
      */
-    private class PassAction extends GameManager.PassAction {
+    private static class PassAction implements GameActionCommand<GameManager1p> {
         @Override
-        public ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException {
-            if (player1.getDices().getScore() < 2) {
+        public void execute(GameManager1p game, Datagram d, DatagramSink out) throws ActionNotAllowedException, IOException {
+            if (game.player1.getDices().getScore() < 2) {
                 throw new ActionNotAllowedException("Pass not allowed here");
             }
-            return finishGame();
+            game.finishGame(out);
         }
     }
     
     /**
      * Finishes the game by sending the last player's points and all server's IA actions
      * if it has not played yet. Then, it also sends a WINS and a CASH datagram.
-     * @return array of datagrams to be sent
+     * @param out sink of the datagrams to be sent
+     * @throws IOException if a datagram cannot be sent
      */
-    private ArrayList<Datagram> finishGame() {
-        ArrayList<Datagram> dg = new ArrayList<>();
+    private void finishGame(DatagramSink out) throws IOException {
         
         Datagram.Builder db = new Datagram.Builder();
         db.withType(Commands.PNTS);
-        db.addParam(ParamNames.ID.name(), player1.getId());
-        db.addParam(ParamNames.POINTS.name(), player1.getDices().getScore());
-        dg.add(db.build());
+        db.addParam(ParamNames.ID, player1.getId());
+        db.addParam(ParamNames.POINTS, player1.getDices().getScore());
+        out.emit(db.build());
         
         if (first_player == 0) {
-            dg.addAll(ServerIA.play(server, player1.getDices().getScore()));
+            ServerIA.play(server, player1.getDices().getScore(), strategy, random, out);
         }
         
         int winner;
@@ -199,16 +213,14 @@ public class GameManager1p extends GameManager {
         
         db = new Datagram.Builder();
         db.withType(Commands.WINS);
-        db.addParam(ParamNames.WINNER.name(), winner);
-        dg.add(db.build());
+        db.addParam(ParamNames.WINNER, winner);
+        out.emit(db.build());
         
         db = new Datagram.Builder();
         db.withType(Commands.CASH);
-        db.addParam(ParamNames.COINS.name(), player1.getGems());
-        dg.add(db.build());
+        db.addParam(ParamNames.COINS, player1.getGems());
+        out.emit(db.build());
         
         this.state = GameState.STARTED;
-        
-        return dg;
     }
 }
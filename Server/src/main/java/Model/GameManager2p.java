@@ -5,10 +5,10 @@ import Exceptions.BetException;
 import Exceptions.ErrorDiceChoice;
 import Exceptions.RollLimitOverpassedException;
 import Exceptions.TakenDiceException;
-import java.util.ArrayList;
-import java.util.Random;
+import java.io.IOException;
 import utils.Commands;
 import utils.Datagram;
+import utils.DatagramSink;
 import utils.Exceptions.NextStateNotDefinedException;
 import utils.ParamNames;
 
@@ -18,18 +18,31 @@ import utils.ParamNames;
  */
 public class GameManager2p extends GameManager {
     
+    /**
+     * Actions allowed at every state, shared by all 2 player games
+     */
+    private static final TransitionTable<GameManager2p> TABLE = new TransitionTable.Builder<GameManager2p>()
+            .allow(GameState.WAITING, Commands.STRT, new StrtAction())
+            .allow(GameState.STARTED, Commands.BETT, new BettAction())
+            .allow(GameState.BET, Commands.TAKE, new TakeAction())
+            .allow(GameState.PLAYER1, Commands.TAKE, new TakeAction())
+            .allow(GameState.BET, Commands.PASS, new PassAction())
+            .allow(GameState.PLAYER1, Commands.PASS, new PassAction())
+            .allowAlways(Commands.ERRO, ERRO_ACTION)
+            .reject(Commands.STRT, "The game is already started")
+            .reject(Commands.BETT, "Betting not allowed here")
+            .reject(Commands.TAKE, "Taking not allowed here")
+            .reject(Commands.PASS, "Pass not allowed here")
+            .build();
+
     private Player player2;
     private int playing;
     
     /**
-     * Constructor building the HashMap
+     * Constructor of a game waiting for both players
      */
     public GameManager2p() {
         super();
-        actions.put(Commands.TAKE,new TakeAction());
-        actions.put(Commands.PASS, new PassAction());
-        actions.put(Commands.STRT, new StrtAction());
-        actions.put(Commands.BETT, new BettAction());
         first_player = -1;
         player2 = null;
     }
@@ -41,18 +54,42 @@ public class GameManager2p extends GameManager {
         return player2;
     }
 
+    /**
+     * Releases both players claimed by this game
+     */
+    @Override
+    public void releasePlayers() {
+        super.releasePlayers();
+        if (player2 != null) {
+            player2.release(this);
+        }
+    }
+
 
 
     /**
      * Executes the corresponding game action depending on the state, the datagram object received and the player who has send the order
      * @param datagram The datagram object obtained from assembling the socket protocol command received
      * @param player The player identifier
-     * @return An array list of datagram responses to a certain action
+     * @param out The sink receiving the datagram responses to a certain action
      * @throws ActionNotAllowedException If the datagram does is not executable at the current state
+     * @throws IOException If a response cannot be sent
      */
-    public ArrayList<Datagram> executeAction(Datagram datagram, int player) throws ActionNotAllowedException {
+    public void executeAction(Datagram datagram, int player, DatagramSink out) throws ActionNotAllowedException, IOException {
         playing = player;
-        return super.executeAction(datagram);
+        TABLE.execute(this, state, datagram, out);
+    }
+
+    /**
+     * Executes the datagram on behalf of the last player who has sent one
+     * @param datagram The datagram object obtained from assembling the socket protocol command received
+     * @param out The sink receiving the datagram responses to a certain action
+     * @throws ActionNotAllowedException If the datagram does is not executable at the current state
+     * @throws IOException If a response cannot be sent
+     */
+    @Override
+    public void executeAction(Datagram datagram, DatagramSink out) throws ActionNotAllowedException, IOException {
+        TABLE.execute(this, state, datagram, out);
     }
 
     /**
@@ -60,55 +97,41 @@ public class GameManager2p extends GameManager {
      * twice (both players need to send this command) and then send a personalized CASH datagram
      * for every player
      */
-    private class StrtAction extends GameManager.StrtAction {
+    private static class StrtAction implements GameActionCommand<GameManager2p> {
         @Override
-        public ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException {
-            if (state != GameState.WAITING) {
-                throw new ActionNotAllowedException("The game is already started");
-            }
+        public void execute(GameManager2p game, Datagram d, DatagramSink out) throws ActionNotAllowedException, IOException {
             
-            int id = d.getParams().getIntParameter().get(ParamNames.ID.name());
-            ArrayList<Datagram> dg = new ArrayList<>();
+            int id = d.getParams().getInt(ParamNames.ID);
 
-            PlayersList pList = PlayersList.getInstance();
+            Player player = PlayersList.getInstance().claimPlayer(id, game);
+            if (player == null) {
+                throw new ActionNotAllowedException("This id is already playing");
+            }
             
-            if (first_player == -1) {
-                synchronized(this) {
-                    player1 = pList.getPlayer(id);
-                    if (player1.isConnected()) {
-                        throw new ActionNotAllowedException("This id is already playing");
-                    }
-                    player1.connect();
-                }
+            if (game.first_player == -1) {
+                game.player1 = player;
                 
-                player1.giveNewDices();    
-                first_player = 0;
+                game.player1.giveNewDices();    
+                game.first_player = 0;
             }
             else {
-                synchronized(this) {
-                    player2 = pList.getPlayer(id);
-                    if (player2.isConnected()) {
-                        throw new ActionNotAllowedException("This id is already playing");
-                    }
-                    player2.connect();
-                }
+                game.player2 = player;
                 
-                player2.giveNewDices();
+                game.player2.giveNewDices();
                 Datagram.Builder db = new Datagram.Builder();
                 db.withType(Commands.CASH);
-                db.addParam(ParamNames.COINS.name(), player1.getGems());
-                db.addParam(ParamNames.RECEIVER.name(), 0);
-                dg.add(db.build());
+                db.addParam(ParamNames.COINS, game.player1.getGems());
+                db.addParam(ParamNames.RECEIVER, 0);
+                out.emit(db.build());
                 
                 db = new Datagram.Builder();
                 db.withType(Commands.CASH);
-                db.addParam(ParamNames.COINS.name(), player2.getGems());
-                db.addParam(ParamNames.RECEIVER.name(), 1);
-                dg.add(db.build());
-                state = GameState.STARTED;
-                first_player = -1;
+                db.addParam(ParamNames.COINS, game.player2.getGems());
+                db.addParam(ParamNames.RECEIVER, 1);
+                out.emit(db.build());
+                game.state = GameState.STARTED;
+                game.first_player = -1;
             }
-            return dg;
         }
     }
 
@@ -117,76 +140,70 @@ public class GameManager2p extends GameManager {
      * Then, it sends a LOOT datagram for both players, a personalized PLAY datagram for each
      * player and a DICE datagram for both (but dices for the first player)
      */
-    private class BettAction extends GameManager.BettAction {
+    private static class BettAction implements GameActionCommand<GameManager2p> {
         @Override
-        public ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException {
-            if (state != GameState.STARTED) {
-                throw new ActionNotAllowedException("Betting not allowed here");
-            }
+        public void execute(GameManager2p game, Datagram d, DatagramSink out) throws ActionNotAllowedException, IOException {
             try {
-                ArrayList<Datagram> dg = new ArrayList<>();
-                if (first_player == -1) {
-                    player1.bet(Player.INITIAL_BET);
-                    loot += Player.INITIAL_BET;
-                    first_player = 0;
+                if (game.first_player == -1) {
+                    game.player1.bet(Player.INITIAL_BET);
+                    game.loot += Player.INITIAL_BET;
+                    game.first_player = 0;
                 }
                 else {
-                    player2.bet(Player.INITIAL_BET);
-                    loot += Player.INITIAL_BET;
+                    game.player2.bet(Player.INITIAL_BET);
+                    game.loot += Player.INITIAL_BET;
                        
                     Datagram.Builder db = new Datagram.Builder();
                     db.withType(Commands.LOOT);
-                    db.addParam(ParamNames.COINS.name(), loot);
-                    db.addParam(ParamNames.RECEIVER.name(), 2);
-                    dg.add(db.build());
+                    db.addParam(ParamNames.COINS, game.loot);
+                    db.addParam(ParamNames.RECEIVER, 2);
+                    out.emit(db.build());
 
-                    Random r = new Random();
-                    first_player = r.nextInt(2);
-                    if (first_player == 0) {
+                    game.first_player = game.random.flipCoin();
+                    if (game.first_player == 0) {
                         db = new Datagram.Builder();
                         db.withType(Commands.PLAY);
-                        db.addParam(ParamNames.PLAYER.name(), 0);
-                        db.addParam(ParamNames.RECEIVER.name(), 0);
-                        dg.add(db.build());
+                        db.addParam(ParamNames.PLAYER, 0);
+                        db.addParam(ParamNames.RECEIVER, 0);
+                        out.emit(db.build());
                         
                         db = new Datagram.Builder();
                         db.withType(Commands.PLAY);
-                        db.addParam(ParamNames.PLAYER.name(), 1);
-                        db.addParam(ParamNames.RECEIVER.name(), 1);
-                        dg.add(db.build());
+                        db.addParam(ParamNames.PLAYER, 1);
+                        db.addParam(ParamNames.RECEIVER, 1);
+                        out.emit(db.build());
 
                         db = new Datagram.Builder();
                         db.withType(Commands.DICE);
-                        db.addParam(ParamNames.ID.name(), player1.getId());
-                        player1.getDices().rollDices();
-                        db.addParam(ParamNames.DICES.name(), player1.getDices().getIntDices());
-                        db.addParam(ParamNames.RECEIVER.name(), 2);
-                        dg.add(db.build());
+                        db.addParam(ParamNames.ID, game.player1.getId());
+                        game.player1.getDices().rollDices(game.random);
+                        db.addHand(ParamNames.DICES, game.player1.getDices().getHand());
+                        db.addParam(ParamNames.RECEIVER, 2);
+                        out.emit(db.build());
                     }
                     else {
                         db = new Datagram.Builder();
                         db.withType(Commands.PLAY);
-                        db.addParam(ParamNames.PLAYER.name(), 1);
-                        db.addParam(ParamNames.RECEIVER.name(), 0);
-                        dg.add(db.build());
+                        db.addParam(ParamNames.PLAYER, 1);
+                        db.addParam(ParamNames.RECEIVER, 0);
+                        out.emit(db.build());
                         
                         db = new Datagram.Builder();
                         db.withType(Commands.PLAY);
-                        db.addParam(ParamNames.PLAYER.name(), 0);
-                        db.addParam(ParamNames.RECEIVER.name(), 1);
-                        dg.add(db.build());
+                        db.addParam(ParamNames.PLAYER, 0);
+                        db.addParam(ParamNames.RECEIVER, 1);
+                        out.emit(db.build());
 
                         db = new Datagram.Builder();
                         db.withType(Commands.DICE);
-                        db.addParam(ParamNames.ID.name(), player2.getId());
-                        player2.getDices().rollDices();
-                        db.addParam(ParamNames.DICES.name(), player2.getDices().getIntDices());
-                        db.addParam(ParamNames.RECEIVER.name(), 2);
-                        dg.add(db.build());
+                        db.addParam(ParamNames.ID, game.player2.getId());
+                        game.player2.getDices().rollDices(game.random);
+                        db.addHand(ParamNames.DICES, game.player2.getDices().getHand());
+                        db.addParam(ParamNames.RECEIVER, 2);
+                        out.emit(db.build());
                     }
-                    state = GameState.BET;
+                    game.state = GameState.BET;
                 }
-                return dg;
             } catch (BetException | RollLimitOverpassedException ex) {
                 throw new ActionNotAllowedException(ex.getMessage());
             }
@@ -197,65 +214,59 @@ public class GameManager2p extends GameManager {
      * Take the given dices for the player playing and sends a DICE datagram (if the game is finished,
      * it also sends all finishing datagrams)
      */
-    private class TakeAction extends GameManager.TakeAction {
+    private static class TakeAction implements GameActionCommand<GameManager2p> {
         @Override
-        public ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException {
-            if (state != GameState.BET && state != GameState.PLAYER1) {
-                throw new ActionNotAllowedException("Taking not allowed here");
-            }
-            if (first_player == playing) {
+        public void execute(GameManager2p game, Datagram d, DatagramSink out) throws ActionNotAllowedException, IOException {
+            if (game.first_player == game.playing) {
                 Player aux, aux2;
-                if (playing == 0) {
-                    aux = player1;
-                    aux2 = player2;
+                if (game.playing == 0) {
+                    aux = game.player1;
+                    aux2 = game.player2;
                 }
                 else {
-                    aux = player2;
-                    aux2 = player1;
+                    aux = game.player2;
+                    aux2 = game.player1;
                 }
                 try {
                     
-                    aux.getDices().takeDices(d.getParams().getArrayParameter().get(ParamNames.DICES.name()), d.getParams().getArrayParameter().get(ParamNames.DICES.name()).size());
-
-                    ArrayList<Datagram> dg = new ArrayList<>();
+                    aux.getDices().takeDices(d.getParams().getHand(ParamNames.DICES));
                     Datagram.Builder db = new Datagram.Builder();
                     db.withType(Commands.DICE);
-                    db.addParam(ParamNames.ID.name(), aux.getId());
-                    aux.getDices().rollDices();
-                    db.addParam(ParamNames.DICES.name(), aux.getDices().getIntDices());
-                    db.addParam(ParamNames.RECEIVER.name(), 2);
-                    dg.add(db.build());
+                    db.addParam(ParamNames.ID, aux.getId());
+                    aux.getDices().rollDices(game.random);
+                    db.addHand(ParamNames.DICES, aux.getDices().getHand());
+                    db.addParam(ParamNames.RECEIVER, 2);
+                    out.emit(db.build());
                     
                     if (!aux.getDices().canRoll()) {
-                        if (playing == 0) {
-                            first_player = 1;
+                        if (game.playing == 0) {
+                            game.first_player = 1;
                         }
                         else {
-                            first_player = 0;
+                            game.first_player = 0;
                         }
-                        if (state == GameState.PLAYER1) {
-                            dg.addAll(finishGame());
+                        if (game.state == GameState.PLAYER1) {
+                            game.finishGame(out);
                         }
                         else {
                             db = new Datagram.Builder();
                             db.withType(Commands.PNTS);
-                            db.addParam(ParamNames.ID.name(), aux.getId());
-                            db.addParam(ParamNames.POINTS.name(), aux.getDices().getScore());
-                            db.addParam(ParamNames.RECEIVER.name(), 2);
-                            dg.add(db.build());
+                            db.addParam(ParamNames.ID, aux.getId());
+                            db.addParam(ParamNames.POINTS, aux.getDices().getScore());
+                            db.addParam(ParamNames.RECEIVER, 2);
+                            out.emit(db.build());
                             
                             db = new Datagram.Builder();
                             db.withType(Commands.DICE);
-                            db.addParam(ParamNames.ID.name(), aux2.getId());
-                            aux2.getDices().rollDices();
-                            db.addParam(ParamNames.DICES.name(), aux2.getDices().getIntDices());
-                            db.addParam(ParamNames.RECEIVER.name(), 2);
-                            dg.add(db.build());
-                            state = GameState.PLAYER1;
+                            db.addParam(ParamNames.ID, aux2.getId());
+                            aux2.getDices().rollDices(game.random);
+                            db.addHand(ParamNames.DICES, aux2.getDices().getHand());
+                            db.addParam(ParamNames.RECEIVER, 2);
+                            out.emit(db.build());
+                            game.state = GameState.PLAYER1;
                         }
                     }
 
-                    return dg;
                 } catch (NextStateNotDefinedException | TakenDiceException | ErrorDiceChoice | RollLimitOverpassedException ex) {
                     throw new ActionNotAllowedException(ex.getMessage());
                 }
@@ -269,51 +280,46 @@ public class GameManager2p extends GameManager {
     /**
      * Changes the playing player and finishes the game if applicable
      */
-    private class PassAction extends GameManager.PassAction {
+    private static class PassAction implements GameActionCommand<GameManager2p> {
         @Override
-        public ArrayList<Datagram> execute(Datagram d) throws ActionNotAllowedException {
-            if (state != GameState.BET && state != GameState.PLAYER1) {
-                throw new ActionNotAllowedException("Taking not allowed here");
-            }
-            if (first_player == playing) {
+        public void execute(GameManager2p game, Datagram d, DatagramSink out) throws ActionNotAllowedException, IOException {
+            if (game.first_player == game.playing) {
                 Player aux, aux2;
-                if (playing == 0) {
-                    aux = player1;
-                    aux2 = player2;
+                if (game.playing == 0) {
+                    aux = game.player1;
+                    aux2 = game.player2;
                 }
                 else {
-                    aux = player2;
-                    aux2 = player1;
+                    aux = game.player2;
+                    aux2 = game.player1;
                 }
                 if (aux.getDices().getScore() < 2) {
                     throw new ActionNotAllowedException("Pass not allowed here");
                 }
                 else {
-                    if (state == GameState.BET) {
+                    if (game.state == GameState.BET) {
                         try {
-                            ArrayList<Datagram> dg = new ArrayList<>();
                             Datagram.Builder db = new Datagram.Builder();
                             db.withType(Commands.PNTS);
-                            db.addParam(ParamNames.ID.name(), aux.getId());
-                            db.addParam(ParamNames.POINTS.name(), aux.getDices().getScore());
-                            db.addParam(ParamNames.RECEIVER.name(), 2);
-                            dg.add(db.build());
+                            db.addParam(ParamNames.ID, aux.getId());
+                            db.addParam(ParamNames.POINTS, aux.getDices().getScore());
+                            db.addParam(ParamNames.RECEIVER, 2);
+                            out.emit(db.build());
                             
                             db.withType(Commands.DICE);
-                            db.addParam(ParamNames.ID.name(), aux2.getId());
-                            aux.getDices().rollDices();
-                            db.addParam(ParamNames.DICES.name(), aux2.getDices().getIntDices());
-                            db.addParam(ParamNames.RECEIVER.name(), 2);
-                            dg.add(db.build());
+                            db.addParam(ParamNames.ID, aux2.getId());
+                            aux.getDices().rollDices(game.random);
+                            db.addHand(ParamNames.DICES, aux2.getDices().getHand());
+                            db.addParam(ParamNames.RECEIVER, 2);
+                            out.emit(db.build());
                             
-                            state = GameState.PLAYER1;
-                            return dg;
+                            game.state = GameState.PLAYER1;
                         } catch (RollLimitOverpassedException ex) {
                             throw new ActionNotAllowedException(ex.getMessage());
                         }
                     }
                     else {
-                        return finishGame();
+                        game.finishGame(out);
                     }
                 }
             }
@@ -325,10 +331,10 @@ public class GameManager2p extends GameManager {
     
     /**
      * Sends the last PNTS datagram and WINS and CASH datagrams (different for each player)
-     * @return array of Datagrams to be sent
+     * @param out sink of the datagrams to be sent
+     * @throws IOException if a datagram cannot be sent
      */
-    private ArrayList<Datagram> finishGame() {
-        ArrayList<Datagram> dg = new ArrayList<>();
+    private void finishGame(DatagramSink out) throws IOException {
         
         Player aux;
         if (playing == 0) {
@@ -339,23 +345,23 @@ public class GameManager2p extends GameManager {
         }
         Datagram.Builder db = new Datagram.Builder();
         db.withType(Commands.PNTS);
-        db.addParam(ParamNames.ID.name(), aux.getId());
-        db.addParam(ParamNames.POINTS.name(), aux.getDices().getScore());
-        db.addParam(ParamNames.RECEIVER.name(), 2);
-        dg.add(db.build());
+        db.addParam(ParamNames.ID, aux.getId());
+        db.addParam(ParamNames.POINTS, aux.getDices().getScore());
+        db.addParam(ParamNames.RECEIVER, 2);
+        out.emit(db.build());
         
         if (player1.getDices().getScore() > player2.getDices().getScore()) {
             db = new Datagram.Builder();
             db.withType(Commands.WINS);
-            db.addParam(ParamNames.WINNER.name(), 0);
-            db.addParam(ParamNames.RECEIVER.name(), 0);
-            dg.add(db.build());
+            db.addParam(ParamNames.WINNER, 0);
+            db.addParam(ParamNames.RECEIVER, 0);
+            out.emit(db.build());
             
             db = new Datagram.Builder();
             db.withType(Commands.WINS);
-            db.addParam(ParamNames.WINNER.name(), 1);
-            db.addParam(ParamNames.RECEIVER.name(), 1);
-            dg.add(db.build());
+            db.addParam(ParamNames.WINNER, 1);
+            db.addParam(ParamNames.RECEIVER, 1);
+            out.emit(db.build());
             
             player1.winGems(loot);
             loot = 0;
@@ -363,15 +369,15 @@ public class GameManager2p extends GameManager {
         else if (player1.getDices().getScore() < player2.getDices().getScore()) {
             db = new Datagram.Builder();
             db.withType(Commands.WINS);
-            db.addParam(ParamNames.WINNER.name(), 1);
-            db.addParam(ParamNames.RECEIVER.name(), 0);
-            dg.add(db.build());
+            db.addParam(ParamNames.WINNER, 1);
+            db.addParam(ParamNames.RECEIVER, 0);
+            out.emit(db.build());
             
             db = new Datagram.Builder();
             db.withType(Commands.WINS);
-            db.addParam(ParamNames.WINNER.name(), 0);
-            db.addParam(ParamNames.RECEIVER.name(), 1);
-            dg.add(db.build());
+            db.addParam(ParamNames.WINNER, 0);
+            db.addParam(ParamNames.RECEIVER, 1);
+            out.emit(db.build());
             
             player2.winGems(loot);
             loot = 0;
@@ -379,28 +385,26 @@ public class GameManager2p extends GameManager {
         else {
             db = new Datagram.Builder();
             db.withType(Commands.WINS);
-            db.addParam(ParamNames.WINNER.name(), 2);
-            db.addParam(ParamNames.RECEIVER.name(), 2);
-            dg.add(db.build());
+            db.addParam(ParamNames.WINNER, 2);
+            db.addParam(ParamNames.RECEIVER, 2);
+            out.emit(db.build());
         }
         player2.giveNewDices();
         player1.giveNewDices();
         
         db = new Datagram.Builder();
         db.withType(Commands.CASH);
-        db.addParam(ParamNames.COINS.name(), player1.getGems());
-        db.addParam(ParamNames.RECEIVER.name(), 0);
-        dg.add(db.build());
+        db.addParam(ParamNames.COINS, player1.getGems());
+        db.addParam(ParamNames.RECEIVER, 0);
+        out.emit(db.build());
 
         db = new Datagram.Builder();
         db.withType(Commands.CASH);
-        db.addParam(ParamNames.COINS.name(), player2.getGems());
-        db.addParam(ParamNames.RECEIVER.name(), 1);
-        dg.add(db.build());
+        db.addParam(ParamNames.COINS, player2.getGems());
+        db.addParam(ParamNames.RECEIVER, 1);
+        out.emit(db.build());
         
         this.state = GameState.STARTED;
         first_player = -1;
-        
-        return dg;
     }
 }
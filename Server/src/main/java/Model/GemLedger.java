@@ -0,0 +1,593 @@
+package Model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Ledger of the gem transactions of the players. Every bet and every loot won is
+ * appended to a buffer (without any I/O) and a writer thread writes the buffered
+ * transactions to gems.log with a single fsync (group commit). The buffer is
+ * bounded, so appending waits for the writer when it is full. Every some
+ * transactions the writer saves the balances in gems.snapshot and moves the log to
+ * gems.SEQUENCE.log, which stays as an audit trail (only the last ones are kept if
+ * a number of audit logs is given), so opening the ledger only replays the
+ * transactions after the last snapshot. Only the changes since the last snapshot
+ * are kept in memory: the snapshot is sorted by ID and mapped, and the balance of
+ * a player not changed since is searched in it. If a batch cannot be written the
+ * ledger stops without marking it as durable: the error is printed once, the
+ * transactions not written are lost, the new ones are ignored, the balances are
+ * no longer known (so the players are loaded from the other files) and sync and
+ * close report the error
+ * @author Oriol-Manu
+ */
+public class GemLedger implements Closeable {
+
+    /**
+     * Gems returned for a player not in the ledger
+     */
+    public static final int ABSENT = -1;
+
+    /**
+     * Transaction giving a player its balance when it enters the ledger
+     */
+    public static final int OPEN = 0;
+
+    /**
+     * Transaction of gems bet
+     */
+    public static final int BET = 1;
+
+    /**
+     * Transaction of gems won (e.g. the loot of a game)
+     */
+    public static final int LOOT = 2;
+
+    /**
+     * Transactions between snapshots predetermined
+     */
+    public static final int SNAPSHOT_EVENTS = 1 << 20;
+
+    /**
+     * Audit logs kept predetermined
+     */
+    public static final int AUDIT_LOGS = 64;
+
+    private static final int MAGIC = 0x4C444732;
+    private static final int SNAPSHOT_HEADER = 16;
+    private static final int RECORD = 24;
+    private static final int INITIAL_BUFFER = RECORD * 4096;
+    private static final int MAX_BUFFER = RECORD * 65536;
+
+    private final Path directory;
+    private final int snapshotEvents;
+    private final int auditLogs;
+    private final ArrayDeque<Path> audits;
+    private final Map<Integer, Delta> balances;
+    private final Map<Integer, Delta> written;
+    private final Thread writer;
+    private final CRC32 crc;
+    private FileChannel log;
+    private Snapshot snapshot;
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    private long next;
+    private long durable;
+    private long logged;
+    private boolean closed;
+    private IOException error;
+
+    /**
+     * Receives the transactions read from a log
+     */
+    public interface Reader {
+        /**
+         * @param seq sequence number of the transaction
+         * @param kind OPEN, BET or LOOT
+         * @param id player's ID
+         * @param gems gems of the transaction
+         */
+        void read(long seq, int kind, int id, int gems);
+    }
+
+    /**
+     * Constructor opening the ledger of a directory (or creating it), loading the last
+     * snapshot and replaying the transactions logged after it. Every audit log is kept
+     * @param directory directory of the files of the ledger
+     * @param snapshotEvents transactions between snapshots
+     * @throws IOException if the files cannot be read or written
+     */
+    public GemLedger(Path directory, int snapshotEvents) throws IOException {
+        this(directory, snapshotEvents, 0);
+    }
+
+    /**
+     * Constructor opening the ledger of a directory (or creating it), loading the last
+     * snapshot and replaying the transactions logged after it
+     * @param directory directory of the files of the ledger
+     * @param snapshotEvents transactions between snapshots
+     * @param auditLogs audit logs kept, the oldest ones are deleted (0 to keep all of them)
+     * @throws IOException if the files cannot be read or written
+     */
+    public GemLedger(Path directory, int snapshotEvents, int auditLogs) throws IOException {
+        this.directory = directory;
+        this.snapshotEvents = snapshotEvents;
+        this.auditLogs = auditLogs;
+        Files.createDirectories(directory);
+        audits = audits(directory);
+        deleteAudits();
+        balances = new HashMap<>();
+        written = new HashMap<>();
+        crc = new CRC32();
+        snapshot = Snapshot.open(directory.resolve("gems.snapshot"));
+        long last = snapshot.seq;
+        next = last;
+        long valid = read(directory.resolve("gems.log"), (seq, kind, id, gems) -> {
+            if (seq > last) {
+                apply(written, kind, id, gems);
+                next = seq;
+                logged++;
+            }
+        });
+        balances.putAll(written);
+        durable = next;
+        log = FileChannel.open(directory.resolve("gems.log"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.truncate(valid);
+        log.position(valid);
+        pending = ByteBuffer.allocate(INITIAL_BUFFER);
+        spare = ByteBuffer.allocate(INITIAL_BUFFER);
+        writer = new Thread(this::write, "gem-ledger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Finds the balance of a player in the changes since the last snapshot or else in
+     * the snapshot (searched without holding the lock)
+     * @param id player's ID
+     * @return the gems of the player or ABSENT if it is not in the ledger (or the
+     * ledger has stopped)
+     */
+    public int balance(int id) {
+        Delta delta;
+        Snapshot base;
+        synchronized (this) {
+            if (error != null) {
+                return ABSENT;
+            }
+            delta = balances.get(id);
+            base = snapshot;
+        }
+        if (delta != null && delta.open) {
+            return delta.gems;
+        }
+        int gems = base.get(id);
+        return delta == null ? gems : Math.max(gems, 0) + delta.gems;
+    }
+
+    /**
+     * Appends a transaction (it is written to disk later by the writer thread),
+     * waiting while the buffer is full. The transaction is ignored if the ledger has
+     * stopped because of an error
+     * @param kind OPEN, BET or LOOT
+     * @param id player's ID
+     * @param gems gems of the transaction
+     * @throws IOException if the ledger is closed
+     */
+    public synchronized void append(int kind, int id, int gems) throws IOException {
+        try {
+            while (pending.position() + RECORD > MAX_BUFFER && error == null && !closed) {
+                wait();
+            }
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException(ex.getMessage());
+        }
+        if (error != null) {
+            return;
+        }
+        if (closed) {
+            throw new IOException("The ledger is closed");
+        }
+        if (pending.remaining() < RECORD) {
+            ByteBuffer bigger = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        int start = pending.position();
+        pending.putLong(++next).putInt(kind).putInt(id).putInt(gems);
+        crc.reset();
+        crc.update(pending.array(), start, RECORD - 4);
+        pending.putInt((int) crc.getValue());
+        apply(balances, kind, id, gems);
+        notifyAll();
+    }
+
+    /**
+     * Waits until all the transactions appended are on disk
+     * @throws IOException if the writer cannot write them (or could not write any before)
+     */
+    public synchronized void sync() throws IOException {
+        long last = next;
+        try {
+            while (durable < last && error == null) {
+                wait();
+            }
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException(ex.getMessage());
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Writes the transactions appended and stops the writer
+     * @throws IOException if the transactions cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException(ex.getMessage());
+        }
+        log.close();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Reads the transactions of a log until its end or until a transaction is
+     * incomplete or corrupted (e.g. by a crash while it was written)
+     * @param file log read
+     * @param reader receiver of the transactions
+     * @return length of the valid part of the log
+     * @throws IOException if the log cannot be read
+     */
+    public static long read(Path file, Reader reader) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long valid = 0;
+        CRC32 check = new CRC32();
+        byte[] record = new byte[RECORD];
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                try {
+                    in.readFully(record);
+                } catch (EOFException ex) {
+                    return valid;
+                }
+                check.reset();
+                check.update(record, 0, RECORD - 4);
+                if (buffer.getInt(RECORD - 4) != (int) check.getValue()) {
+                    return valid;
+                }
+                reader.read(buffer.getLong(0), buffer.getInt(8), buffer.getInt(12), buffer.getInt(16));
+                valid += RECORD;
+            }
+        }
+    }
+
+    /**
+     * Writer thread: writes every batch of transactions with one fsync. It stops at
+     * the first error, without marking the batch as durable
+     */
+    private void write() {
+        while (true) {
+            ByteBuffer batch;
+            long last;
+            synchronized (this) {
+                try {
+                    while (pending.position() == 0 && !closed) {
+                        wait();
+                    }
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                last = next;
+                notifyAll();
+            }
+            batch.flip();
+            try {
+                while (batch.hasRemaining()) {
+                    log.write(batch);
+                }
+                log.force(false);
+            } catch (IOException ex) {
+                stop(ex);
+                return;
+            }
+            batch.flip();
+            while (batch.hasRemaining()) {
+                batch.getLong();
+                apply(written, batch.getInt(), batch.getInt(), batch.getInt());
+                batch.getInt();
+                logged++;
+            }
+            batch.clear();
+            synchronized (this) {
+                spare = batch;
+                durable = last;
+                notifyAll();
+            }
+            if (logged >= snapshotEvents) {
+                try {
+                    saveSnapshot(last);
+                } catch (IOException ex) {
+                    stop(ex);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the ledger because of an error, waking up the threads waiting for it
+     */
+    private synchronized void stop(IOException ex) {
+        System.out.println(ex.getMessage());
+        error = ex;
+        notifyAll();
+    }
+
+    /**
+     * Saves the balances up to a transaction, merging the changes written since the
+     * last snapshot into it, drops those changes from memory and moves the log to the
+     * audit trail
+     */
+    private void saveSnapshot(long seq) throws IOException {
+        Path temporary = directory.resolve("gems.snapshot.tmp");
+        int[] ids = new int[written.size()];
+        int n = 0;
+        for (int id : written.keySet()) {
+            ids[n++] = id;
+        }
+        Arrays.sort(ids);
+        Snapshot base = snapshot;
+        int count = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(seq);
+            out.writeInt(0);
+            int i = 0;
+            int j = 0;
+            while (i < base.count || j < ids.length) {
+                if (j == ids.length || (i < base.count && base.id(i) < ids[j])) {
+                    out.writeInt(base.id(i));
+                    out.writeInt(base.gems(i));
+                    i++;
+                }
+                else {
+                    int gems = ABSENT;
+                    if (i < base.count && base.id(i) == ids[j]) {
+                        gems = base.gems(i);
+                        i++;
+                    }
+                    out.writeInt(ids[j]);
+                    out.writeInt(written.get(ids[j]).on(gems));
+                    j++;
+                }
+                count++;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(count);
+            header.flip();
+            channel.write(header, SNAPSHOT_HEADER - 4);
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve("gems.snapshot"), StandardCopyOption.ATOMIC_MOVE);
+        Snapshot saved = Snapshot.open(directory.resolve("gems.snapshot"));
+        synchronized (this) {
+            snapshot = saved;
+            for (Map.Entry<Integer, Delta> entry : written.entrySet()) {
+                Delta pending = balances.get(entry.getKey());
+                Delta rest = pending == null ? null : pending.after(entry.getValue());
+                if (rest == null) {
+                    balances.remove(entry.getKey());
+                }
+                else {
+                    balances.put(entry.getKey(), rest);
+                }
+            }
+        }
+        written.clear();
+        log.close();
+        try {
+            Path audit = directory.resolve("gems." + seq + ".log");
+            Files.move(directory.resolve("gems.log"), audit, StandardCopyOption.ATOMIC_MOVE);
+            audits.add(audit);
+            logged = 0;
+        } finally {
+            log = FileChannel.open(directory.resolve("gems.log"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            log.position(log.size());
+        }
+        deleteAudits();
+    }
+
+    /**
+     * Deletes the oldest audit logs while there are more than the ones kept
+     */
+    private void deleteAudits() {
+        while (auditLogs > 0 && audits.size() > auditLogs) {
+            Path audit = audits.poll();
+            try {
+                Files.deleteIfExists(audit);
+            } catch (IOException ex) {
+                System.out.println(ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Finds the audit logs of a directory
+     * @return the audit logs from the oldest to the newest
+     */
+    private static ArrayDeque<Path> audits(Path directory) throws IOException {
+        ArrayList<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "gems.*.log")) {
+            for (Path file : files) {
+                if (file.getFileName().toString().matches("gems\\.[0-9]+\\.log")) {
+                    found.add(file);
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(GemLedger::sequence));
+        return new ArrayDeque<>(found);
+    }
+
+    private static long sequence(Path audit) {
+        String name = audit.getFileName().toString();
+        return Long.parseLong(name.substring("gems.".length(), name.length() - ".log".length()));
+    }
+
+    private static void apply(Map<Integer, Delta> balances, int kind, int id, int gems) {
+        Delta previous = balances.get(id);
+        if (kind == OPEN) {
+            balances.put(id, new Delta(true, gems));
+        }
+        else {
+            int change = kind == BET ? -gems : gems;
+            balances.put(id, previous == null ? new Delta(false, change) : new Delta(previous.open, previous.gems + change));
+        }
+    }
+
+    /**
+     * Change of the balance of a player since the last snapshot: the gems given by
+     * an OPEN transaction (and the ones won or bet after it) or the gems won or bet
+     * on top of the balance of the snapshot
+     */
+    private static final class Delta {
+
+        private final boolean open;
+        private final int gems;
+
+        Delta(boolean open, int gems) {
+            this.open = open;
+            this.gems = gems;
+        }
+
+        /**
+         * @param base balance of the snapshot or ABSENT
+         * @return balance after the change
+         */
+        int on(int base) {
+            return open ? gems : Math.max(base, 0) + gems;
+        }
+
+        /**
+         * Removes the part of this change already saved in a new snapshot
+         * @param saved change saved, a prefix of this one
+         * @return the change on top of the new snapshot, null if there is none
+         */
+        Delta after(Delta saved) {
+            if (open) {
+                return saved.open && saved.gems == gems ? null : this;
+            }
+            return gems == saved.gems ? null : new Delta(false, gems - saved.gems);
+        }
+    }
+
+    /**
+     * Snapshot mapped in memory: the balances sorted by ID after a header of 16
+     * bytes (magic number, sequence number of the last transaction and number of
+     * players)
+     */
+    private static final class Snapshot {
+
+        private final MappedByteBuffer buffer;
+        private final long seq;
+        private final int count;
+
+        private Snapshot(MappedByteBuffer buffer, long seq, int count) {
+            this.buffer = buffer;
+            this.seq = seq;
+            this.count = count;
+        }
+
+        /**
+         * Maps a snapshot
+         * @param file snapshot mapped
+         * @return the snapshot or an empty one if the file does not exist
+         * @throws IOException if the file cannot be read or is not a snapshot
+         */
+        static Snapshot open(Path file) throws IOException {
+            if (!Files.exists(file)) {
+                return new Snapshot(null, 0, 0);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (channel.size() < SNAPSHOT_HEADER || buffer.getInt(0) != MAGIC
+                        || channel.size() != SNAPSHOT_HEADER + (long) buffer.getInt(12) * 8) {
+                    throw new IOException(file + " is not a snapshot");
+                }
+                return new Snapshot(buffer, buffer.getLong(4), buffer.getInt(12));
+            }
+        }
+
+        int id(int i) {
+            return buffer.getInt(SNAPSHOT_HEADER + i * 8);
+        }
+
+        int gems(int i) {
+            return buffer.getInt(SNAPSHOT_HEADER + i * 8 + 4);
+        }
+
+        /**
+         * Binary search of a player
+         * @param id player's ID
+         * @return the gems of the player or ABSENT if it is not in the snapshot
+         */
+        int get(int id) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int found = id(middle);
+                if (found < id) {
+                    low = middle + 1;
+                }
+                else if (found > id) {
+                    high = middle - 1;
+                }
+                else {
+                    return gems(middle);
+                }
+            }
+            return ABSENT;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package Model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File keeping the gems of every player, mapped in memory. The file is a hash table
+ * of records of 16 bytes (ID, gems, mark) after a header of 16 bytes (magic number,
+ * capacity and number of players), so opening it only maps it, without reading or
+ * rebuilding anything. The changes are in the memory of the system as soon as they
+ * are made, so they survive a crash of the server, but they only reach the disk
+ * when the file is forced: periodically if a period is given (without stopping the
+ * writes), when the table grows and when the file is closed. A crash of the machine
+ * loses the changes since the last force or keeps some of them. A record is written
+ * before it is marked as used, and the mark is computed from its ID, so a record
+ * whose ID did not reach the disk is never taken for the one of a player. The
+ * number of players is only used to decide when to grow. The table is doubled in
+ * the background when it is three eighths full, into a new file that replaces the
+ * old one once it is complete and forced (only copying the records holds the lock,
+ * and a write waits for it only if the table gets half full meanwhile)
+ * @author Oriol-Manu
+ */
+public class GemStore implements Closeable {
+
+    /**
+     * Gems returned for a player not in the file
+     */
+    public static final int ABSENT = -1;
+
+    /**
+     * Milliseconds between two forces of the file used by the server
+     */
+    public static final long FORCE_PERIOD = 1000;
+
+    private static final int MAGIC = 0x47454D32;
+    private static final int HEADER = 16;
+    private static final int RECORD = 16;
+    private static final int GEMS = 4;
+    private static final int USED = 8;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final long CLOSE_TIMEOUT = 10 * 1000;
+
+    private final Path file;
+    private final ScheduledExecutorService background;
+    private volatile MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+    private boolean growing;
+    private boolean closed;
+
+    /**
+     * Constructor opening the file or creating it if it does not exist, forced only
+     * when the table grows and when it is closed
+     * @param file path of the file
+     * @throws IOException if the file cannot be opened or is not a gem file
+     */
+    public GemStore(Path file) throws IOException {
+        this(file, 0);
+    }
+
+    /**
+     * Constructor opening the file or creating it if it does not exist and forcing it
+     * periodically
+     * @param file path of the file
+     * @param forceMillis milliseconds between two forces of the file (0 for none)
+     * @throws IOException if the file cannot be opened or is not a gem file
+     */
+    public GemStore(Path file, long forceMillis) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (channel.size() == 0) {
+                buffer = create(channel, INITIAL_CAPACITY);
+            }
+            else {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                if (channel.size() < HEADER || buffer.getInt(0) != MAGIC
+                        || channel.size() != HEADER + (long) buffer.getInt(4) * RECORD) {
+                    throw new IOException(file + " is not a gem file");
+                }
+            }
+        }
+        capacity = buffer.getInt(4);
+        count = buffer.getInt(8);
+        background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "gem-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (forceMillis > 0) {
+            background.scheduleWithFixedDelay(() -> {
+                try {
+                    force();
+                } catch (RuntimeException ex) {
+                    System.out.println(ex.getMessage());
+                }
+            }, forceMillis, forceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @param id player's ID
+     * @return the gems of the player or ABSENT if it is not in the file
+     */
+    public synchronized int get(int id) {
+        int i = index(buffer, capacity, id);
+        return buffer.getInt(position(i) + USED) == 0 ? ABSENT : buffer.getInt(position(i) + GEMS);
+    }
+
+    /**
+     * Writes the gems of a player
+     * @param id player's ID
+     * @param gems player's gems
+     * @throws IOException if the file is full or cannot be grown
+     */
+    public synchronized void put(int id, int gems) throws IOException {
+        int record = position(index(buffer, capacity, id));
+        if (buffer.getInt(record + USED) != 0) {
+            buffer.putInt(record + GEMS, gems);
+            return;
+        }
+        if ((count + 1) * 8 > capacity * 3 && !growing && capacity < MAX_CAPACITY) {
+            growing = true;
+            background.execute(this::grow);
+        }
+        if ((count + 1) * 2 > capacity) {
+            boolean interrupted = false;
+            while (growing) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if ((count + 1) * 2 > capacity) {
+                install(prepare());
+                commit();
+            }
+            record = position(index(buffer, capacity, id));
+        }
+        buffer.putInt(record, id);
+        buffer.putInt(record + GEMS, gems);
+        buffer.putInt(record + USED, mark(id));
+        buffer.putInt(8, ++count);
+    }
+
+    /**
+     * @return number of players in the file
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Writes the changes to the disk. The writes are not stopped meanwhile, so some
+     * of the ones made while forcing may reach the disk too
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Stops the periodic force, waits for a table being copied to replace the old file
+     * and forces the file
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        background.shutdown();
+        try {
+            background.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        force();
+    }
+
+    /**
+     * Doubles the table in the background: the new file is created and sized without
+     * the lock, the records are copied holding it and the file replaces the old one
+     * without it again
+     */
+    private void grow() {
+        try {
+            MappedByteBuffer copy = prepare();
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                install(copy);
+            }
+            commit();
+        } catch (IOException | RuntimeException ex) {
+            System.out.println(ex.getMessage());
+        } finally {
+            synchronized (this) {
+                growing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Creates and maps the file of a table twice as big
+     */
+    private MappedByteBuffer prepare() throws IOException {
+        int bigger;
+        synchronized (this) {
+            bigger = capacity * 2;
+        }
+        if (bigger > MAX_CAPACITY) {
+            throw new IOException(file + " is full");
+        }
+        try (FileChannel grown = FileChannel.open(grown(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return create(grown, bigger);
+        }
+    }
+
+    /**
+     * Copies the records to the new table holding the lock and writes to it from now on
+     */
+    private void install(MappedByteBuffer copy) throws IOException {
+        int bigger = copy.getInt(4);
+        if (bigger != capacity * 2) {
+            throw new IOException(file + " has been grown meanwhile");
+        }
+        for (int i = 0; i < capacity; i++) {
+            int record = position(i);
+            int id = buffer.getInt(record);
+            if (buffer.getInt(record + USED) == mark(id)) {
+                int to = position(index(copy, bigger, id));
+                copy.putInt(to, id);
+                copy.putInt(to + GEMS, buffer.getInt(record + GEMS));
+                copy.putInt(to + USED, mark(id));
+            }
+        }
+        copy.putInt(8, count);
+        buffer = copy;
+        capacity = bigger;
+    }
+
+    /**
+     * Forces the new table and replaces the old file with it
+     */
+    private void commit() throws IOException {
+        force();
+        Files.move(grown(), file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path grown() {
+        return file.resolveSibling(file.getFileName() + ".grow");
+    }
+
+    /**
+     * Sizes an empty file for the given capacity, maps it and writes the header
+     */
+    private static MappedByteBuffer create(FileChannel channel, int capacity) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) capacity * RECORD);
+        buffer.putInt(4, capacity);
+        buffer.putInt(8, 0);
+        buffer.putInt(0, MAGIC);
+        buffer.force();
+        return buffer;
+    }
+
+    /**
+     * Finds the record of an ID or the empty record where it goes
+     */
+    private static int index(MappedByteBuffer buffer, int capacity, int id) {
+        int mask = capacity - 1;
+        int h = id * 0x9E3779B9;
+        int i = (h ^ (h >>> 16)) & mask;
+        while (buffer.getInt(position(i) + USED) != 0
+                && (buffer.getInt(position(i)) != id || buffer.getInt(position(i) + USED) != mark(id))) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Mark of a used record, never 0 and computed from the ID it must have
+     */
+    private static int mark(int id) {
+        return (id * 0x85EBCA6B) | 1;
+    }
+
+    private static int position(int i) {
+        return HEADER + i * RECORD;
+    }
+}
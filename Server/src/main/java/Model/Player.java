@@ -1,6 +1,8 @@
 package Model;
 
 import Exceptions.BetException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class with player features
@@ -19,18 +21,31 @@ public class Player {
     public static final int INITIAL_BET = 1;
     private int gems;
     private final int id;
-    private Dices dices;
-    private boolean connected;
+    private final Dices dices;
+    private final AtomicReference<Object> session;
+    private volatile long lastSeen;
+    private GemStore balances;
+    private GemLedger ledger;
 
     /**
      * Constructor for a player
      * @param id player's ID
      */
     public Player(int id) {
-        this.gems = INITIAL_GEMS;
+        this(id, INITIAL_GEMS);
+    }
+
+    /**
+     * Constructor for a player that already has some gems (e.g. read from disk)
+     * @param id player's ID
+     * @param gems number of gems
+     */
+    public Player(int id, int gems) {
+        this.gems = gems;
         this.id = id;
         this.dices = new Dices();
-        connected = false;
+        session = new AtomicReference<>();
+        lastSeen = System.currentTimeMillis();
     }
 
     /**
@@ -49,6 +64,8 @@ public class Player {
             throw new BetException();
         }
         this.gems = this.gems - gems;
+        record(GemLedger.BET, gems);
+        saveGems();
     }
     
     /**
@@ -56,6 +73,50 @@ public class Player {
      */
     public void winGems (int gems) {
         this.gems = this.gems + gems;
+        record(GemLedger.LOOT, gems);
+        saveGems();
+    }
+
+    /**
+     * Keeps the gems of the player in a file from now on (and writes them)
+     * @param balances file of the gems
+     * @throws IOException if the gems cannot be written
+     */
+    public void setGemStore(GemStore balances) throws IOException {
+        this.balances = balances;
+        balances.put(id, gems);
+    }
+
+    /**
+     * Appends the transactions of the player to a ledger from now on (and its balance
+     * if the ledger does not have it)
+     * @param ledger ledger of the transactions
+     */
+    public void setGemLedger(GemLedger ledger) {
+        this.ledger = ledger;
+        if (ledger.balance(id) != gems) {
+            record(GemLedger.OPEN, gems);
+        }
+    }
+
+    private void record(int kind, int gems) {
+        if (ledger != null) {
+            try {
+                ledger.append(kind, id, gems);
+            } catch (IOException ex) {
+                System.out.println(ex.getMessage());
+            }
+        }
+    }
+
+    private void saveGems() {
+        if (balances != null) {
+            try {
+                balances.put(id, gems);
+            } catch (IOException ex) {
+                System.out.println(ex.getMessage());
+            }
+        }
     }
 
     /**
@@ -66,10 +127,10 @@ public class Player {
     }
 
     /**
-     * Inizialize new dices for the player
+     * Inizialize new dices for the player (the same dices are reset)
      */
     public void giveNewDices(){
-        this.dices = new Dices();
+        this.dices.reset();
     }
 
     /**
@@ -80,23 +141,47 @@ public class Player {
     }
 
     /**
-     * Disconnect the player (a player cannot be playing in several games at a time)
+     * Claims the player for a session (a player cannot be playing in several games
+     * at a time). When several sessions claim the player at once, only one succeeds
+     * @param token owner of the session (e.g. the game)
+     * @return true if the player has been claimed, false if it is already playing
      */
-    public void disconnect() {
-        connected = false;
+    public boolean claim(Object token) {
+        return session.compareAndSet(null, token);
     }
-    
+
     /**
-     * Connect a player
+     * Releases the player if the session belongs to the given owner
+     * @param token owner of the session
+     * @return true if the player has been released, false if the owner was another one
      */
-    public void connect() {
-        connected = true;
+    public boolean release(Object token) {
+        if (session.compareAndSet(token, null)) {
+            lastSeen = System.currentTimeMillis();
+            return true;
+        }
+        return false;
     }
-    
+
+    /**
+     * @param token owner of a session
+     * @return true if the player is claimed by the given owner
+     */
+    public boolean isClaimedBy(Object token) {
+        return session.get() == token;
+    }
+
+    /**
+     * @return time in milliseconds when the player was created or released for the last time
+     */
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
     /**
      * @return true if is connected, false otherwise
      */
     public boolean isConnected() {
-        return connected;
+        return session.get() != null;
     }
 }
@@ -0,0 +1,142 @@
+package Model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File keeping the players evicted from memory as records of 8 bytes (ID and
+ * gems). The slot of every ID is found in an index of two integer arrays, so an
+ * evicted player costs a few bytes of memory instead of a Player and its Dices.
+ * A player evicted again reuses its slot. The file is scratch space of a single
+ * execution: it is emptied when opened, so the gems of the players must be kept
+ * between executions by a GemStore or a GemLedger
+ * @author Oriol-Manu
+ */
+public class PlayerStore implements Closeable {
+
+    private static final int RECORD = 8;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer record;
+    private int[] ids;
+    private int[] slots;
+    private int count;
+
+    /**
+     * Constructor creating an empty file (the content of an existing one is discarded,
+     * since the index of the players is only kept in memory)
+     * @param file path of the file
+     * @throws IOException if the file cannot be created
+     */
+    public PlayerStore(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        record = ByteBuffer.allocate(RECORD);
+        ids = new int[INITIAL_CAPACITY];
+        slots = new int[INITIAL_CAPACITY];
+        count = 0;
+    }
+
+    /**
+     * Writes the record of a player
+     * @param id player's ID
+     * @param gems player's gems
+     * @throws IOException if the file is not available
+     */
+    public synchronized void save(int id, int gems) throws IOException {
+        int i = index(ids, slots, id);
+        int slot = slots[i] - 1;
+        if (slot < 0) {
+            slot = count;
+        }
+        record.clear();
+        record.putInt(id).putInt(gems).flip();
+        while (record.hasRemaining()) {
+            channel.write(record, (long) slot * RECORD + RECORD - record.remaining());
+        }
+        if (slots[i] == 0) {
+            ids[i] = id;
+            slots[i] = slot + 1;
+            count++;
+            if (count * 2 > ids.length) {
+                grow();
+            }
+        }
+    }
+
+    /**
+     * @param id player's ID
+     * @return true if the player has been evicted some time
+     */
+    public synchronized boolean contains(int id) {
+        return slots[index(ids, slots, id)] != 0;
+    }
+
+    /**
+     * Reads the gems of an evicted player
+     * @param id player's ID
+     * @return the gems saved
+     * @throws IOException if the file is not available or the player is not in it
+     */
+    public synchronized int load(int id) throws IOException {
+        int slot = slots[index(ids, slots, id)] - 1;
+        if (slot < 0) {
+            throw new IOException("Player " + id + " not evicted");
+        }
+        record.clear();
+        while (record.hasRemaining()) {
+            if (channel.read(record, (long) slot * RECORD + record.position()) < 0) {
+                throw new IOException("Record of player " + id + " is incomplete");
+            }
+        }
+        record.flip();
+        if (record.getInt() != id) {
+            throw new IOException("Record of player " + id + " is corrupted");
+        }
+        return record.getInt();
+    }
+
+    /**
+     * @return number of players in the file
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Finds the position of an ID in the index or the empty position where it goes
+     */
+    private static int index(int[] ids, int[] slots, int id) {
+        int mask = ids.length - 1;
+        int h = id * 0x9E3779B9;
+        int i = (h ^ (h >>> 16)) & mask;
+        while (slots[i] != 0 && ids[i] != id) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void grow() {
+        int[] newIds = new int[ids.length * 2];
+        int[] newSlots = new int[ids.length * 2];
+        for (int i = 0; i < ids.length; i++) {
+            if (slots[i] != 0) {
+                int j = index(newIds, newSlots, ids[i]);
+                newIds[j] = ids[i];
+                newSlots[j] = slots[i];
+            }
+        }
+        ids = newIds;
+        slots = newSlots;
+    }
+}
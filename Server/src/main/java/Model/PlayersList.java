@@ -1,44 +1,478 @@
 package Model;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * List of all player that have been inizialized any time while server has been active
+ * List of all player that have been inizialized any time while server has been active.
+ * The players are kept in an open addressing hash table indexed by their ID: finding
+ * a player does not take any lock (every slot is published atomically) and only
+ * adding or removing a player is synchronized, so a player is never created twice.
+ * A player is loaded without holding the lock, while the other threads asking for
+ * it wait.
+ * When eviction is configured, the players not connected for a while (or the oldest
+ * ones if there are too many) are moved to a PlayerStore and loaded again the next
+ * time they are claimed
  * @author Oriol-Manu
  */
 public class PlayersList {
-    private static PlayersList instance = null;
-    private final ArrayList<Player> players;
-    
-    private PlayersList() {
-        players = new ArrayList<>();
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long MIN_SWEEP = 1000;
+    private static final long MAX_SWEEP = 60 * 1000;
+
+    /**
+     * Owner of the players being evicted, so no game can claim them meanwhile
+     */
+    private static final Object EVICTED = new Object();
+
+    private volatile Table table;
+    private final HashSet<Integer> loading;
+    private int size;
+    private int used;
+    private PlayerStore store;
+    private GemStore balances;
+    private GemLedger ledger;
+    private long idleMillis;
+    private int maxPlayers;
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * Constructor of a registry apart from the one of the server (e.g. for the
+     * simulations), without eviction, gem store nor ledger
+     */
+    public PlayersList() {
+        table = new Table(INITIAL_CAPACITY);
+        loading = new HashSet<>();
+        size = 0;
+        used = 0;
     }
-    
+
     /**
-     * @return the unique instance of a PlayerList by singleton
+     * Holder of the instance, created the first time it is used
+     */
+    private static class Holder {
+        private static final PlayersList INSTANCE = new PlayersList();
+    }
+
+    /**
+     * @return the unique instance of the server's PlayerList by singleton
      */
     public static PlayersList getInstance() {
-        if (instance == null) {
-            instance = new PlayersList();
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Moves the idle players to disk from now on. A sweeper thread evicts the players
+     * not connected for the given time and, while there are more players than the
+     * given limit, the ones connected longer ago
+     * @param idleMillis milliseconds a player stays in memory after being released (0 for no limit)
+     * @param maxPlayers maximum number of players in memory (0 for no limit)
+     * @param store file receiving the evicted players
+     */
+    public synchronized void configureEviction(long idleMillis, int maxPlayers, PlayerStore store) {
+        this.idleMillis = idleMillis;
+        this.maxPlayers = maxPlayers;
+        this.store = store;
+        if (sweeper != null) {
+            sweeper.shutdownNow();
         }
-        return instance;
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "player-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.min(Math.max(idleMillis / 2, MIN_SWEEP), MAX_SWEEP);
+        sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
     }
-    
+
+    /**
+     * Keeps the gems of the players created or loaded from now on in a file, so they
+     * are not lost when the server restarts
+     * @param balances file of the gems
+     */
+    public synchronized void setGemStore(GemStore balances) {
+        this.balances = balances;
+    }
+
+    /**
+     * Appends the transactions of the players created or loaded from now on to a
+     * ledger, whose balances are the first ones read when a player is created
+     * @param ledger ledger of the transactions
+     */
+    public synchronized void setGemLedger(GemLedger ledger) {
+        this.ledger = ledger;
+    }
+
     /**
      * Searchs if there is a player with the provided ID and returns or creates it
+     * (an evicted player is loaded from disk)
      * @param id integer ID to search
      * @return if the player has been found, returns the player, creates a new player otherwise
      */
     public Player getPlayer (int id) {
-        for(Player player: this.players) {
-            if (player.getId() == id) {
+        Player player = table.find(id);
+        if (player != null) {
+            return player;
+        }
+        return getOrLoad(id);
+    }
+
+    /**
+     * Returns the player with the provided ID claimed for a session. If the player is
+     * being evicted at the same time, waits until it is on disk and loads it again
+     * @param id integer ID to search
+     * @param token owner of the session (e.g. the game)
+     * @return the player claimed or null if it is already playing
+     */
+    public Player claimPlayer(int id, Object token) {
+        Player player = getPlayer(id);
+        while (!player.claim(token)) {
+            if (player.isClaimedBy(EVICTED)) {
+                player = reload(id);
+            }
+            else if (player.isConnected()) {
+                return null;
+            }
+        }
+        return player;
+    }
+
+    /**
+     * Searchs a player without creating it
+     * @param id integer ID to search
+     * @return the player or null if there is no player with this ID (or it is on disk)
+     */
+    public Player findPlayer(int id) {
+        return table.find(id);
+    }
+
+    /**
+     * Moves a player to disk if it is not connected
+     * @param id integer ID of the player
+     * @return true if the player has been evicted, false if it is connected, not in
+     * memory or eviction is not configured
+     */
+    public synchronized boolean evict(int id) {
+        Player player = table.find(id);
+        return player != null && evict(player);
+    }
+
+    /**
+     * @return number of players in memory
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Finds, loads or creates a player. The player is loaded (or created, which also
+     * writes to the files of the gems) without holding the lock, after marking its ID
+     * as being loaded, so the threads asking for it meanwhile wait for it instead of
+     * loading it twice
+     */
+    private Player getOrLoad(int id) {
+        PlayerStore store;
+        GemStore balances;
+        GemLedger ledger;
+        synchronized (this) {
+            boolean interrupted = false;
+            Player player = table.find(id);
+            while (player == null && loading.contains(id)) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+                player = table.find(id);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (player != null) {
                 return player;
             }
+            loading.add(id);
+            store = this.store;
+            balances = this.balances;
+            ledger = this.ledger;
         }
-        synchronized(this) {
-            Player player = new Player(id);
-            players.add(player);
-            return player;
+        Player player = null;
+        try {
+            player = load(id, store, balances, ledger);
+        } finally {
+            synchronized (this) {
+                loading.remove(id);
+                if (player != null) {
+                    insert(player);
+                }
+                notifyAll();
+            }
+        }
+        return player;
+    }
+
+    /**
+     * Adds a player loaded holding the lock, growing the table if it is half full
+     */
+    private void insert(Player player) {
+        if ((used + 1) * 2 > table.capacity()) {
+            int capacity = table.capacity();
+            table = table.rebuild((size + 1) * 4 > capacity ? capacity * 2 : capacity);
+            used = size;
+        }
+        if (table.insert(player)) {
+            used++;
+        }
+        size++;
+        if (maxPlayers > 0 && size == maxPlayers + 1) {
+            sweeper.execute(this::sweep);
+        }
+    }
+
+    /**
+     * Waits until the player being evicted is on disk and loads it again
+     */
+    private Player reload(int id) {
+        synchronized (this) {
+            boolean interrupted = false;
+            Player player = table.find(id);
+            while (player != null && player.isClaimedBy(EVICTED)) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+                player = table.find(id);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return getOrLoad(id);
+    }
+
+    /**
+     * Reads the gems of a player from the ledger, the gem store or the evicted players
+     * (in this order) and attaches the files of the gems to it
+     */
+    private static Player load(int id, PlayerStore store, GemStore balances, GemLedger ledger) {
+        Player player = null;
+        int gems = ledger == null ? GemLedger.ABSENT : ledger.balance(id);
+        if (gems != GemLedger.ABSENT) {
+            player = new Player(id, gems);
+        }
+        else if (balances != null && balances.get(id) != GemStore.ABSENT) {
+            player = new Player(id, balances.get(id));
+        }
+        else if (store != null && store.contains(id)) {
+            try {
+                player = new Player(id, store.load(id));
+            } catch (IOException ex) {
+                System.out.println(ex.getMessage());
+            }
+        }
+        if (player == null) {
+            player = new Player(id);
+        }
+        if (balances != null) {
+            try {
+                player.setGemStore(balances);
+            } catch (IOException ex) {
+                System.out.println(ex.getMessage());
+            }
+        }
+        if (ledger != null) {
+            player.setGemLedger(ledger);
+        }
+        return player;
+    }
+
+    /**
+     * Evicts the players idle for too long and, if there are still too many players,
+     * the ones released longer ago until a quarter of the room is free again. The
+     * players are chosen and claimed holding the lock, saved without it (so finding
+     * or creating other players does not wait for the disk) and removed holding it again
+     */
+    private void sweep() {
+        PlayerStore target;
+        Player[] victims = new Player[0];
+        boolean[] saved = new boolean[0];
+        try {
+            synchronized (this) {
+                target = store;
+                victims = target == null ? victims : victims(System.currentTimeMillis());
+            }
+            saved = new boolean[victims.length];
+            for (int i = 0; i < victims.length; i++) {
+                try {
+                    target.save(victims[i].getId(), victims[i].getGems());
+                    saved[i] = true;
+                } catch (IOException ex) {
+                    System.out.println(ex.getMessage());
+                }
+            }
+        } catch (RuntimeException ex) {
+            System.out.println(ex.getMessage());
+        } finally {
+            synchronized (this) {
+                for (int i = 0; i < victims.length; i++) {
+                    if (i < saved.length && saved[i]) {
+                        table.remove(victims[i]);
+                        size--;
+                    }
+                    else {
+                        victims[i].release(EVICTED);
+                    }
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Claims the players to be evicted holding the lock. The players are sorted by
+     * the time they were seen when the sweep started, since it changes meanwhile
+     * @param now current time in milliseconds
+     * @return the players claimed
+     */
+    private Player[] victims(long now) {
+        Player[] players = table.players();
+        Player[] victims = new Player[players.length];
+        int count = 0;
+        for (Player player : players) {
+            if (idleMillis > 0 && !player.isConnected() && now - player.getLastSeen() >= idleMillis
+                    && player.claim(EVICTED)) {
+                victims[count++] = player;
+            }
+        }
+        if (maxPlayers > 0 && size - count > maxPlayers) {
+            int target = maxPlayers - maxPlayers / 4;
+            long[] seen = new long[players.length];
+            Integer[] order = new Integer[players.length];
+            for (int i = 0; i < players.length; i++) {
+                seen[i] = players[i].getLastSeen();
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(seen[a], seen[b]));
+            for (int i = 0; i < order.length && size - count > target; i++) {
+                Player player = players[order[i]];
+                if (!player.isConnected() && player.claim(EVICTED)) {
+                    victims[count++] = player;
+                }
+            }
+        }
+        return Arrays.copyOf(victims, count);
+    }
+
+    /**
+     * Claims the player so no game takes it, saves it and removes it from memory
+     * (if it cannot be saved it stays in memory)
+     */
+    private boolean evict(Player player) {
+        if (store == null || !player.claim(EVICTED)) {
+            return false;
+        }
+        try {
+            store.save(player.getId(), player.getGems());
+        } catch (IOException ex) {
+            System.out.println(ex.getMessage());
+            player.release(EVICTED);
+            return false;
+        }
+        table.remove(player);
+        size--;
+        return true;
+    }
+
+    /**
+     * Hash table with linear probing. A removed player leaves a tombstone, so a reader
+     * probing without the lock never misses a player moved by a removal
+     */
+    private static class Table {
+
+        private static final Player TOMBSTONE = new Player(0, 0);
+
+        private final AtomicReferenceArray<Player> players;
+        private final int mask;
+
+        Table(int capacity) {
+            players = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return players.length();
+        }
+
+        Player find(int id) {
+            for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+                Player player = players.get(i);
+                if (player == null) {
+                    return null;
+                }
+                if (player != TOMBSTONE && player.getId() == id) {
+                    return player;
+                }
+            }
+        }
+
+        /**
+         * @return true if the player takes an empty slot, false if it reuses a tombstone
+         */
+        boolean insert(Player player) {
+            int i = hash(player.getId()) & mask;
+            Player current;
+            while ((current = players.get(i)) != null && current != TOMBSTONE) {
+                i = (i + 1) & mask;
+            }
+            players.set(i, player);
+            return current == null;
+        }
+
+        void remove(Player player) {
+            for (int i = hash(player.getId()) & mask; players.get(i) != null; i = (i + 1) & mask) {
+                if (players.get(i) == player) {
+                    players.set(i, TOMBSTONE);
+                    return;
+                }
+            }
+        }
+
+        Player[] players() {
+            int count = 0;
+            Player[] found = new Player[players.length()];
+            for (int i = 0; i < found.length; i++) {
+                Player player = players.get(i);
+                if (player != null && player != TOMBSTONE) {
+                    found[count++] = player;
+                }
+            }
+            return Arrays.copyOf(found, count);
+        }
+
+        /**
+         * @return a copy of the table without tombstones
+         */
+        Table rebuild(int capacity) {
+            Table copy = new Table(capacity);
+            for (int i = 0; i < players.length(); i++) {
+                Player player = players.get(i);
+                if (player != null && player != TOMBSTONE) {
+                    copy.insert(player);
+                }
+            }
+            return copy;
+        }
+
+        private static int hash(int id) {
+            int h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
         }
     }
 }
@@ -0,0 +1,84 @@
+package Model;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import utils.DataAssembler;
+import utils.DiceHand;
+
+/**
+ * Source of the random values of the games. The shared service uses the
+ * generator of the current thread (nothing is allocated nor shared between
+ * threads) and a seeded service repeats the same values for the same seed, so a
+ * game can be replayed. Every roll of the five dices uses 13 bits of a single
+ * 64-bit value (6^5 = 7776 combinations of 8192)
+ * @author Oriol-Manu
+ */
+public abstract class RandomService {
+
+    private static final int HAND_BITS = 13;
+    private static final int HAND_MASK = (1 << HAND_BITS) - 1;
+    private static final int HANDS = 7776;
+
+    private static final RandomService SHARED = new RandomService() {
+        @Override
+        public long nextLong() {
+            return ThreadLocalRandom.current().nextLong();
+        }
+    };
+
+    /**
+     * @return the service shared by all the games
+     */
+    public static RandomService shared() {
+        return SHARED;
+    }
+
+    /**
+     * Creates a service for a single game (it must be used by one thread at a time)
+     * @param seed seed of the values
+     * @return the seeded service
+     */
+    public static RandomService seeded(long seed) {
+        final SplittableRandom r = new SplittableRandom(seed);
+        return new RandomService() {
+            @Override
+            public long nextLong() {
+                return r.nextLong();
+            }
+        };
+    }
+
+    /**
+     * @return 64 random bits
+     */
+    public abstract long nextLong();
+
+    /**
+     * Rolls the five dices
+     * @return values of the dices (1 to 6) packed as a DiceHand
+     */
+    public int rollDices() {
+        while (true) {
+            long bits = nextLong();
+            for (int shift = 0; shift + HAND_BITS <= Long.SIZE; shift += HAND_BITS) {
+                int combination = (int) (bits >>> shift) & HAND_MASK;
+                if (combination < HANDS) {
+                    int hand = DiceHand.EMPTY;
+                    for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
+                        hand = DiceHand.add(hand, combination % 6 + 1);
+                        combination /= 6;
+                    }
+                    return hand;
+                }
+            }
+        }
+    }
+
+    /**
+     * Flips a coin
+     * @return 0 or 1
+     */
+    public int flipCoin() {
+        return (int) (nextLong() >>> 63);
+    }
+}
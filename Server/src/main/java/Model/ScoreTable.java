@@ -0,0 +1,130 @@
+package Model;
+
+import utils.DataAssembler;
+import utils.DiceHand;
+import utils.DicesState;
+import utils.Exceptions.NextStateNotDefinedException;
+
+/**
+ * Table with the result of scoring every possible roll (6^5 hands) at every
+ * state of the dices, built once when the class is loaded. Every entry packs the
+ * score, the state reached and the dices taken automatically (the ship, captain
+ * and crew found, in the same order as the dices are scanned when scoring), so
+ * scoring a roll is a single lookup. The dices already taken never have the next
+ * value needed, so they do not change the entry
+ * @author Oriol-Manu
+ */
+final class ScoreTable {
+
+    /**
+     * Number of different rolls of the five dices
+     */
+    public static final int HANDS = 7776;
+
+    private static final int STATE_SHIFT = 4;
+    private static final int TAKE_SHIFT = 6;
+    private static final int SCORE_MASK = (1 << STATE_SHIFT) - 1;
+    private static final int STATE_MASK = (1 << (TAKE_SHIFT - STATE_SHIFT)) - 1;
+    private static final int CREW_VALUE = DicesState.SHIP.getValue() + DicesState.CAPTAIN.getValue() + DicesState.CREW.getValue();
+    private static final DicesState[] STATES = DicesState.values();
+
+    private static final int[] TABLE = new int[STATES.length * HANDS];
+
+    static {
+        int[] values = new int[DataAssembler.NUM_DICES];
+        for (int code = 0; code < HANDS; code++) {
+            int rest = code;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rest % 6 + 1;
+                rest /= 6;
+            }
+            for (DicesState state : STATES) {
+                TABLE[state.ordinal() * HANDS + code] = score(state, values);
+            }
+        }
+    }
+
+    private ScoreTable() {
+    }
+
+    /**
+     * Code of a roll (its values as a number in base 6)
+     * @param hand values of the dices rolled packed as a DiceHand
+     * @return code of the roll, from 0 to HANDS - 1
+     */
+    public static int code(int hand) {
+        int code = 0;
+        for (int i = DataAssembler.NUM_DICES - 1; i >= 0; i--) {
+            code = code * 6 + DiceHand.get(hand, i) - 1;
+        }
+        return code;
+    }
+
+    /**
+     * @param state current state of the dices
+     * @param code code of the roll
+     * @return entry of the table
+     */
+    public static int lookup(DicesState state, int code) {
+        return TABLE[state.ordinal() * HANDS + code];
+    }
+
+    /**
+     * @param entry entry of the table
+     * @return score of the roll
+     */
+    public static int score(int entry) {
+        return entry & SCORE_MASK;
+    }
+
+    /**
+     * @param entry entry of the table
+     * @return state reached after taking the dices
+     */
+    public static DicesState state(int entry) {
+        return STATES[(entry >>> STATE_SHIFT) & STATE_MASK];
+    }
+
+    /**
+     * @param entry entry of the table
+     * @return dices taken automatically (bit i for the dice in position i)
+     */
+    public static int taken(int entry) {
+        return entry >>> TAKE_SHIFT;
+    }
+
+    /**
+     * Scores a roll scanning the dices, taking the ship, captain and crew found
+     * @param state current state of the dices
+     * @param values values of the dices
+     * @return the packed entry
+     */
+    private static int score(DicesState state, int[] values) {
+        int taken = 0;
+        if (state != DicesState.CREW) {
+            boolean take = true;
+            while (take) {
+                take = false;
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] == state.nextValue()) {
+                        taken |= 1 << i;
+                        take = true;
+                        try {
+                            state = state.nextState();
+                        } catch (NextStateNotDefinedException ex) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        int score = 0;
+        if (state == DicesState.CREW) {
+            for (int i = 0; i < values.length; i++) {
+                score += values[i];
+            }
+            score -= CREW_VALUE;
+        }
+        return (taken << TAKE_SHIFT) | (state.ordinal() << STATE_SHIFT) | score;
+    }
+}
@@ -5,10 +5,12 @@ import Exceptions.ErrorDiceChoice;
 import utils.Exceptions.NextStateNotDefinedException;
 import Exceptions.RollLimitOverpassedException;
 import Exceptions.TakenDiceException;
-import java.util.ArrayList;
+import java.io.IOException;
 import utils.Commands;
 import utils.DataAssembler;
 import utils.Datagram;
+import utils.DatagramSink;
+import utils.DiceHand;
 import utils.ParamNames;
 
 /**
@@ -20,15 +22,17 @@ import utils.ParamNames;
 public class ServerIA {
     
     /**
-     * Rolls the dices every time is allowed (this is a usual server's action)
+     * Rolls the dices and passes when the strategy says so
      * @param server player representing the server
-     * @param points number of points the other player has scored, 0 if server is
-     *               the first player
-     * @return array of Datagrams with all commands for player playing as a player and
-     *         server's actions interspersed
+     * @param points number of points the other player has scored, StrategyTable.NO_TARGET
+     *               if server is the first player
+     * @param strategy strategy deciding when to pass
+     * @param random service giving the values rolled
+     * @param out sink receiving all commands for player playing as a player and
+     *            server's actions interspersed
+     * @throws IOException if a datagram cannot be sent
      */
-    public static ArrayList<Datagram> play(Player server, int points) {
-        ArrayList<Datagram> dg = new ArrayList<>();
+    public static void play(Player server, int points, Strategy strategy, RandomService random, DatagramSink out) throws IOException {
         Datagram.Builder db;
         
         try {
@@ -36,12 +40,12 @@ public class ServerIA {
             while(server.getDices().canRoll() && !pass) {
                 db = new Datagram.Builder();
                 db.withType(Commands.DICE);
-                db.addParam(ParamNames.ID.name(), server.getId());
-                server.getDices().rollDices();
-                db.addParam(ParamNames.DICES.name(), server.getDices().getIntDices());
-                dg.add(db.build());
+                db.addParam(ParamNames.ID, server.getId());
+                server.getDices().rollDices(random);
+                db.addHand(ParamNames.DICES, server.getDices().getHand());
+                out.emit(db.build());
                 
-                pass = takeDices(server, dg, points);
+                pass = takeDices(server, out, points, strategy);
             }
             
         } catch (RollLimitOverpassedException ex) {
@@ -49,35 +53,35 @@ public class ServerIA {
         finally {
             db = new Datagram.Builder();
             db.withType(Commands.PNTS);
-            db.addParam(ParamNames.ID.name(), server.getId());
-            db.addParam(ParamNames.POINTS.name(), server.getDices().getScore());
-            dg.add(db.build());
+            db.addParam(ParamNames.ID, server.getId());
+            db.addParam(ParamNames.POINTS, server.getDices().getScore());
+            out.emit(db.build());
         }
-        return dg;
     }
     
     /**
      * Server playing as a player intelligence. Algorythm: takes all dices he can
-     * (depending on the state and values rolled) and calculates the score. If the
-     * score is bigger than the opponents's score, then pass (if server is second player);
-     * else pass when score bigger than 7 (if server is first player)
+     * (depending on the state and values rolled). Once the crew is complete, it
+     * passes if the strategy says so
      * @param player server as a player
-     * @param dg array where the datagrams are added
-     * @param points points scored by the opponent, 0 if server is first player
+     * @param out sink where the datagrams are emitted
+     * @param points points scored by the opponent, StrategyTable.NO_TARGET if server is first player
+     * @param strategy strategy deciding when to pass
      * @return true if server wants to pass, else otherwise
+     * @throws IOException if a datagram cannot be sent
      */
-    private static boolean takeDices(Player player, ArrayList<Datagram> dg, int points) {
+    private static boolean takeDices(Player player, DatagramSink out, int points, Strategy strategy) throws IOException {
         DicesState state = player.getDices().getState();
         
-        ArrayList<Integer> arrDices = new ArrayList<>();
+        int arrDices = DiceHand.EMPTY;
         if (state != DicesState.CREW) {
             boolean take = true;
             while (take) {
                 take = false;
                 for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
-                    if (player.getDices().getDice(i).getValue() == state.nextValue()) {
+                    if (player.getDices().getValue(i) == state.nextValue()) {
                         take = true;
-                        arrDices.add(i+1);
+                        arrDices = DiceHand.add(arrDices, i+1);
                         try {
                             state = state.nextState();
                         } catch (NextStateNotDefinedException ex) {
@@ -87,7 +91,7 @@ public class ServerIA {
                 }
             }
             try {
-                player.getDices().takeDices(arrDices, arrDices.size());
+                player.getDices().takeDices(arrDices);
             } catch (NextStateNotDefinedException | TakenDiceException | ErrorDiceChoice ex) {
                 System.out.println("Server as a player has done something bad");
             }
@@ -95,20 +99,20 @@ public class ServerIA {
         if (!player.getDices().canRoll()) {
             return false;
         }
-        else if ((points == 0 && player.getDices().getScore() > 7) ||
-                (points > 0 && player.getDices().getScore() > points)) {
+        else if (player.getDices().getState() == DicesState.CREW &&
+                strategy.pass(points, player.getDices().getRollsLeft(), player.getDices().getScore())) {
             Datagram.Builder db = new Datagram.Builder();
             db.withType(Commands.PASS);
-            db.addParam(ParamNames.ID.name(), player.getId());
-            dg.add(db.build());
+            db.addParam(ParamNames.ID, player.getId());
+            out.emit(db.build());
             return true;
         }
         else {
             Datagram.Builder db = new Datagram.Builder();
             db.withType(Commands.TAKE);
-            db.addParam(ParamNames.ID.name(), player.getId());
-            db.addParam(ParamNames.DICES.name(), arrDices);
-            dg.add(db.build());
+            db.addParam(ParamNames.ID, player.getId());
+            db.addHand(ParamNames.DICES, arrDices);
+            out.emit(db.build());
             return false;
         }
     }
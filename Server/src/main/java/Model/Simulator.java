@@ -0,0 +1,298 @@
+package Model;
+
+import Exceptions.ActionNotAllowedException;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import utils.Commands;
+import utils.DataAssembler;
+import utils.Datagram;
+import utils.DatagramSink;
+import utils.DiceHand;
+import utils.FrameCache;
+import utils.ParamNames;
+
+/**
+ * Plays rounds of 1 player games in the same process (without sockets) to compare
+ * the strategies of the server and of the player. The rounds are split in batches
+ * run by the fork/join pool, every batch with its own game, player and seeded
+ * random service (split from the seed of the simulation, so the streams are
+ * independent and a simulation can be repeated). The player is given new gems
+ * when it has not enough to bet, so the rounds never stop. The players are kept
+ * in a registry of every batch, never in the one of the server (nor its files)
+ * @author Oriol-Manu
+ */
+public class Simulator {
+
+    /**
+     * Rounds played by every batch (bigger simulations are split)
+     */
+    public static final int BATCH = 10000;
+
+    private static final double Z = 1.96;
+    private static final int SERVER_ID = 0;
+    private static final int PLAYER_ID = 1;
+
+    private Simulator() {
+    }
+
+    /**
+     * Plays the rounds using all the cores
+     * @param rounds number of rounds
+     * @param house strategy of the server
+     * @param player strategy of the player
+     * @param seed seed of the simulation
+     * @return results from the player's point of view
+     * @throws IllegalStateException if a game is aborted (no partial results are given)
+     */
+    public static Report run(long rounds, Strategy house, Strategy player, long seed) {
+        return ForkJoinPool.commonPool().invoke(new Batch(rounds, house, player, new SplittableRandom(seed)));
+    }
+
+    /**
+     * Task playing a batch of rounds or splitting it in two
+     */
+    private static class Batch extends RecursiveTask<Report> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long rounds;
+        private final Strategy house;
+        private final Strategy player;
+        private final SplittableRandom random;
+
+        Batch(long rounds, Strategy house, Strategy player, SplittableRandom random) {
+            this.rounds = rounds;
+            this.house = house;
+            this.player = player;
+            this.random = random;
+        }
+
+        @Override
+        protected Report compute() {
+            if (rounds <= BATCH) {
+                return play(rounds, house, player, RandomService.seeded(random.nextLong()));
+            }
+            Batch first = new Batch(rounds / 2, house, player, random.split());
+            Batch second = new Batch(rounds - rounds / 2, house, player, random.split());
+            first.fork();
+            Report report = second.compute();
+            report.add(first.join());
+            return report;
+        }
+    }
+
+    /**
+     * Plays rounds in a new game
+     * @param rounds number of rounds
+     * @param house strategy of the server
+     * @param strategy strategy of the player
+     * @param random service of the game
+     * @return results from the player's point of view
+     * @throws IllegalStateException if the game rejects an action or cannot emit a datagram
+     */
+    private static Report play(long rounds, Strategy house, Strategy strategy, RandomService random) {
+        Report report = new Report();
+        GameManager1p manager = new GameManager1p(SERVER_ID, new PlayersList());
+        manager.setRandom(random);
+        manager.setStrategy(house);
+        RoundSink sink = new RoundSink();
+        try {
+            manager.executeAction(new Datagram.Builder()
+                    .withType(Commands.STRT)
+                    .addParam(ParamNames.ID, PLAYER_ID)
+                    .build(), sink);
+            Player player = manager.getPlayer();
+            for (long round = 0; round < rounds; round++) {
+                if (player.getGems() < Player.INITIAL_BET) {
+                    player.winGems(Player.INITIAL_GEMS);
+                }
+                int gems = player.getGems();
+                sink.reset();
+                manager.executeAction(FrameCache.BETT, sink);
+                while (!sink.finished) {
+                    manager.executeAction(decide(player, sink.target, strategy), sink);
+                }
+                report.add(sink.winner, player.getGems() - gems);
+            }
+            manager.releasePlayers();
+        } catch (ActionNotAllowedException | IOException ex) {
+            throw new IllegalStateException("Simulation aborted: " + ex.getMessage(), ex);
+        }
+        return report;
+    }
+
+    /**
+     * Takes the ship, captain and crew found (as the automatic player does) and
+     * passes once the crew is complete if the strategy says so
+     * @param player player playing
+     * @param target points of the server or StrategyTable.NO_TARGET if the player is first
+     * @param strategy strategy of the player
+     * @return datagram sent by the player
+     */
+    private static Datagram decide(Player player, int target, Strategy strategy) {
+        Dices dices = player.getDices();
+        int entry = ScoreTable.lookup(dices.getState(), ScoreTable.code(dices.getHand()));
+        int cargo = ScoreTable.score(entry);
+        if (cargo > 0 && strategy.pass(target, dices.getRollsLeft(), cargo)) {
+            return new Datagram.Builder()
+                    .withType(Commands.PASS)
+                    .addParam(ParamNames.ID, player.getId())
+                    .build();
+        }
+        int positions = DiceHand.EMPTY;
+        int taken = ScoreTable.taken(entry);
+        for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
+            if ((taken & (1 << i)) != 0) {
+                positions = DiceHand.add(positions, i + 1);
+            }
+        }
+        return new Datagram.Builder()
+                .withType(Commands.TAKE)
+                .addParam(ParamNames.ID, player.getId())
+                .addHand(ParamNames.DICES, positions)
+                .build();
+    }
+
+    /**
+     * Keeps what the player needs to know of a round: the server's points and the winner
+     */
+    private static class RoundSink implements DatagramSink {
+
+        private int target;
+        private int winner;
+        private boolean finished;
+
+        void reset() {
+            target = StrategyTable.NO_TARGET;
+            winner = -1;
+            finished = false;
+        }
+
+        @Override
+        public void emit(Datagram d) {
+            switch (d.getType()) {
+                case PNTS:
+                    if (d.getParams().getInt(ParamNames.ID) == SERVER_ID) {
+                        target = d.getParams().getInt(ParamNames.POINTS);
+                    }
+                    break;
+                case WINS:
+                    winner = d.getParams().getInt(ParamNames.WINNER);
+                    break;
+                case CASH:
+                    finished = winner != -1;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Results of a simulation from the player's point of view
+     */
+    public static class Report {
+
+        private long rounds;
+        private long wins;
+        private long ties;
+        private long gems;
+        private double squares;
+
+        /**
+         * Adds a round
+         * @param winner winner of the round (0 the player, 1 the server, 2 tie)
+         * @param gems gems won (or lost if negative) by the player
+         */
+        void add(int winner, int gems) {
+            rounds++;
+            if (winner == 0) {
+                wins++;
+            }
+            else if (winner == 2) {
+                ties++;
+            }
+            this.gems += gems;
+            squares += (double) gems * gems;
+        }
+
+        /**
+         * Adds the results of another simulation
+         * @param other results added
+         */
+        void add(Report other) {
+            rounds += other.rounds;
+            wins += other.wins;
+            ties += other.ties;
+            gems += other.gems;
+            squares += other.squares;
+        }
+
+        /**
+         * @return number of rounds played
+         */
+        public long getRounds() {
+            return rounds;
+        }
+
+        /**
+         * @return rounds won by the player over rounds played
+         */
+        public double winRate() {
+            return rate(wins);
+        }
+
+        /**
+         * @return tied rounds over rounds played
+         */
+        public double tieRate() {
+            return rate(ties);
+        }
+
+        /**
+         * @return rounds won by the server over rounds played
+         */
+        public double lossRate() {
+            return rate(rounds - wins - ties);
+        }
+
+        /**
+         * @return half width of the 95% confidence interval of the win rate
+         */
+        public double winMargin() {
+            double p = winRate();
+            return rounds == 0 ? 0 : Z * Math.sqrt(p * (1 - p) / rounds);
+        }
+
+        /**
+         * @return mean gems won by the player per round, in bets (Player.INITIAL_BET)
+         */
+        public double gemFlow() {
+            return rate(gems) / Player.INITIAL_BET;
+        }
+
+        /**
+         * @return half width of the 95% confidence interval of the gem flow
+         */
+        public double gemMargin() {
+            if (rounds < 2) {
+                return 0;
+            }
+            double mean = (double) gems / rounds;
+            double variance = (squares - rounds * mean * mean) / (rounds - 1);
+            return Z * Math.sqrt(Math.max(variance, 0) / rounds) / Player.INITIAL_BET;
+        }
+
+        private double rate(long count) {
+            return rounds == 0 ? 0 : (double) count / rounds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rounds: player wins %.4f (+-%.4f), ties %.4f, loses %.4f, gems per bet %.4f (+-%.4f)",
+                    rounds, winRate(), winMargin(), tieRate(), lossRate(), gemFlow(), gemMargin());
+        }
+    }
+}
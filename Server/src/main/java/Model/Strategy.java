@@ -0,0 +1,61 @@
+package Model;
+
+/**
+ * Strategies deciding whether to pass once the ship, captain and crew have been
+ * taken (before that, a player always rolls again). They are used by the server
+ * as a player and by the simulations of the Simulator
+ * @author Oriol-Manu
+ */
+public enum Strategy {
+
+    /**
+     * Optimal strategy solved in the StrategyTable
+     */
+    OPTIMAL {
+        @Override
+        public boolean pass(int target, int rollsLeft, int cargo) {
+            return !StrategyTable.rollAgain(target, rollsLeft, cargo);
+        }
+    },
+
+    /**
+     * Former server's strategy: pass with more than 7 points when playing first
+     * or with more points than the opponent
+     */
+    SERVER_HEURISTIC {
+        @Override
+        public boolean pass(int target, int rollsLeft, int cargo) {
+            return target == StrategyTable.NO_TARGET ? cargo > 7 : cargo > target;
+        }
+    },
+
+    /**
+     * Automatic client's strategy: pass with 7 points or more when playing first
+     * or with more points than the opponent
+     */
+    CLIENT_HEURISTIC {
+        @Override
+        public boolean pass(int target, int rollsLeft, int cargo) {
+            return target == StrategyTable.NO_TARGET ? cargo >= 7 : cargo > target;
+        }
+    },
+
+    /**
+     * Roll the cargo again while there are rolls left, whatever the score
+     */
+    NEVER_PASS {
+        @Override
+        public boolean pass(int target, int rollsLeft, int cargo) {
+            return false;
+        }
+    };
+
+    /**
+     * Decides whether to pass
+     * @param target points to beat or StrategyTable.NO_TARGET if playing first
+     * @param rollsLeft rolls left
+     * @param cargo current cargo (the crew is complete)
+     * @return true to pass, false to roll the cargo again
+     */
+    public abstract boolean pass(int target, int rollsLeft, int cargo);
+}
@@ -0,0 +1,96 @@
+package Model;
+
+import utils.DataAssembler;
+
+/**
+ * Optimal strategy of the server as a player, solved offline as a Markov decision
+ * process by StrategyTableGenerator (in the tests, which check that these tables
+ * match it) and shipped as constants, so no game pays for solving it. The ship,
+ * captain and crew are always taken as soon as they are rolled, so the only
+ * decision is whether to pass or to roll the two cargo dices again once the crew
+ * is complete. The decision depends on the rolls left, the cargo and the points to
+ * beat (or none if the server plays first) and it is kept as one bit per cargo, so
+ * playing is a lookup. A tie counts as half a win and, when playing first, the
+ * opponent is assumed to play optimally too. When rolling again is as good as
+ * passing, the server passes
+ * @author Oriol-Manu
+ */
+public final class StrategyTable {
+
+    /**
+     * Target used when the server plays first (there are no points to beat)
+     */
+    public static final int NO_TARGET = -1;
+
+    private static final int MAX_SCORE = 12;
+    private static final int FIRST = MAX_SCORE + 1;
+
+    /**
+     * Cargos to roll again, indexed by target (FIRST for NO_TARGET) and rolls left
+     */
+    private static final int[] ROLL_AGAIN = {
+        0x0000, 0x0000, 0x0000, // 0
+        0x0000, 0x0000, 0x0000, // 1
+        0x0000, 0x0004, 0x0004, // 2
+        0x0000, 0x000c, 0x000c, // 3
+        0x0000, 0x001c, 0x001c, // 4
+        0x0000, 0x003c, 0x003c, // 5
+        0x0000, 0x007c, 0x007c, // 6
+        0x0000, 0x007c, 0x00fc, // 7
+        0x0000, 0x00fc, 0x01fc, // 8
+        0x0000, 0x01fc, 0x01fc, // 9
+        0x0000, 0x03fc, 0x03fc, // 10
+        0x0000, 0x07fc, 0x07fc, // 11
+        0x0000, 0x0ffc, 0x0ffc, // 12
+        0x0000, 0x00fc, 0x01fc, // NO_TARGET
+    };
+
+    /**
+     * Chances to win from the first roll, indexed by target (FIRST for NO_TARGET)
+     */
+    private static final double[] WIN = {
+        0.7699875539996036,
+        0.539975107999156,
+        0.5364423560047513,
+        0.5248643566798487,
+        0.5022674061805007,
+        0.46847949104678643,
+        0.41909873094246664,
+        0.34154189561969417,
+        0.2552741226311998,
+        0.1736340139671251,
+        0.1054968435109251,
+        0.051929913510570275,
+        0.014167540820145881,
+        0.4943618594475072,
+    };
+
+    private StrategyTable() {
+    }
+
+    /**
+     * Decides whether to roll the cargo again
+     * @param target points to beat or NO_TARGET if the server plays first
+     * @param rollsLeft rolls left
+     * @param cargo current cargo (the crew is complete)
+     * @return true if rolling again gives more chances to win than passing
+     */
+    public static boolean rollAgain(int target, int rollsLeft, int cargo) {
+        if (rollsLeft <= 0) {
+            return false;
+        }
+        return (ROLL_AGAIN[index(target) * DataAssembler.MAX_ROLLS + rollsLeft] & (1 << cargo)) != 0;
+    }
+
+    /**
+     * @param target points to beat or NO_TARGET if the server plays first
+     * @return chances to win (a tie counts as half) playing optimally from the first roll
+     */
+    public static double winChance(int target) {
+        return WIN[index(target)];
+    }
+
+    private static int index(int target) {
+        return target == NO_TARGET ? FIRST : Math.min(Math.max(target, 0), MAX_SCORE);
+    }
+}
@@ -0,0 +1,118 @@
+package Model;
+
+import Exceptions.ActionNotAllowedException;
+import java.io.IOException;
+import utils.Commands;
+import utils.Datagram;
+import utils.DatagramSink;
+
+/**
+ * Immutable table with the action allowed for every pair of game state and
+ * command. The actions are stored in a single array indexed by the ordinals of
+ * the state and the command, so the dispatch is a lookup and a missing entry
+ * means the command is not allowed at that state. A table is built once per
+ * kind of game and shared by all of them
+ * @param <M> kind of game executing the actions
+ * @author Oriol-Manu
+ */
+final class TransitionTable<M extends GameManager> {
+
+    /**
+     * Message used when no specific message has been given for a command
+     */
+    public static final String NOT_ALLOWED = "Command not allowed here";
+
+    private static final int COMMANDS = Commands.values().length;
+
+    private final GameManager.GameActionCommand<? super M>[] actions;
+    private final String[] rejections;
+
+    private TransitionTable(Builder<M> builder) {
+        this.actions = builder.actions.clone();
+        this.rejections = builder.rejections.clone();
+    }
+
+    /**
+     * Executes the action of the command received at the given state
+     * @param game game executing the action
+     * @param state current state of the game
+     * @param d datagram received
+     * @param out sink of the datagrams to be sent
+     * @throws ActionNotAllowedException if the command is not allowed at the state
+     *                                   or the action rejects it
+     * @throws IOException if a datagram cannot be sent
+     */
+    public void execute(M game, GameState state, Datagram d, DatagramSink out) throws ActionNotAllowedException, IOException {
+        int command = d.getType().ordinal();
+        GameManager.GameActionCommand<? super M> action = actions[state.ordinal() * COMMANDS + command];
+        if (action == null) {
+            throw new ActionNotAllowedException(rejections[command]);
+        }
+        action.execute(game, d, out);
+    }
+
+    /**
+     * Builder of transition tables
+     * @param <M> kind of game executing the actions
+     */
+    public static class Builder<M extends GameManager> {
+
+        private final GameManager.GameActionCommand<? super M>[] actions;
+        private final String[] rejections;
+
+        /**
+         * Constructor of an empty table (nothing allowed)
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Builder() {
+            actions = new GameManager.GameActionCommand[GameState.values().length * COMMANDS];
+            rejections = new String[COMMANDS];
+            for (int i = 0; i < COMMANDS; i++) {
+                rejections[i] = NOT_ALLOWED;
+            }
+        }
+
+        /**
+         * Allows a command at a state
+         * @param state state of the game
+         * @param command command received
+         * @param action action executed
+         * @return this builder
+         */
+        public Builder<M> allow(GameState state, Commands command, GameManager.GameActionCommand<? super M> action) {
+            actions[state.ordinal() * COMMANDS + command.ordinal()] = action;
+            return this;
+        }
+
+        /**
+         * Allows a command at every state
+         * @param command command received
+         * @param action action executed
+         * @return this builder
+         */
+        public Builder<M> allowAlways(Commands command, GameManager.GameActionCommand<? super M> action) {
+            for (GameState state : GameState.values()) {
+                allow(state, command, action);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the message of the error sent when a command is not allowed
+         * @param command command received
+         * @param message message of the error
+         * @return this builder
+         */
+        public Builder<M> reject(Commands command, String message) {
+            rejections[command.ordinal()] = message;
+            return this;
+        }
+
+        /**
+         * @return the table built
+         */
+        public TransitionTable<M> build() {
+            return new TransitionTable<>(this);
+        }
+    }
+}
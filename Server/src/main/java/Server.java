@@ -1,9 +1,20 @@
+import Communications.ClientHandler;
 import Communications.ClientHandler1p;
-import Communications.ClientHandler2p;
+import Communications.Matchmaker;
+import Communications.NioServer;
+import Communications.SessionPool;
+import Model.GemLedger;
+import Model.GemStore;
+import Model.PlayerStore;
+import Model.PlayersList;
 
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Main class for server
@@ -13,10 +24,21 @@ public class Server {
 
     /**
      * Server method to initiate a connection socket to listen from the provided port. If the game
-     * is for 1 player, the timeout is set to 60s, if it is for 2 players, the timeout
-     * is set to 500ms
+     * is for 1 player, the timeout is set to 60s, if it is for 2 players, the game has a
+     * 60s deadline for every turn
      * 
-     * @param args -p for server's port (necessary) and -m for number of player (necessary)
+     * @param args -p for server's port (necessary), -m for number of player (necessary)
+     *              -e for thread or nio engine (thread predetermined, nio does not accept
+     *              -s, -q nor -t) and -t for platform or virtual threads running the
+     *              sessions (platform predetermined),
+     *              -s for the maximum number of sessions played at a time (unlimited
+     *              predetermined), -q for the number of sessions waiting for a free slot,
+     *              -i for the seconds an idle player stays in memory, -l for the maximum
+     *              number of players in memory, -v for the file where the evicted players
+     *              are kept while the server runs (players.evicted predetermined, emptied
+     *              at start), -g for the file keeping the gems of the players between executions
+     *              and -j for the directory of the ledger of gem transactions (the last
+     *              GemLedger.AUDIT_LOGS audit logs are kept)
      */
     public static void main(String[] args) {
 
@@ -25,7 +47,107 @@ public class Server {
                 int port = Integer.parseInt(args[1]);
                 if (args[2].equals("-m")) {
                     int option = Integer.parseInt(args[3]);
-                    if (option == 1) {
+                    String engine = "thread";
+                    String threads = "platform";
+                    int maxSessions = 0;
+                    int queued = 0;
+                    int idle = 0;
+                    int maxPlayers = 0;
+                    String gems = null;
+                    String journal = null;
+                    String evicted = "players.evicted";
+                    for (int i = 4; i + 1 < args.length; i += 2) {
+                        if (args[i].equals("-e")) {
+                            engine = args[i+1];
+                        }
+                        else if (args[i].equals("-t")) {
+                            threads = args[i+1];
+                        }
+                        else if (args[i].equals("-s")) {
+                            maxSessions = Integer.parseInt(args[i+1]);
+                        }
+                        else if (args[i].equals("-q")) {
+                            queued = Integer.parseInt(args[i+1]);
+                        }
+                        else if (args[i].equals("-i")) {
+                            idle = Integer.parseInt(args[i+1]);
+                        }
+                        else if (args[i].equals("-l")) {
+                            maxPlayers = Integer.parseInt(args[i+1]);
+                        }
+                        else if (args[i].equals("-g")) {
+                            gems = args[i+1];
+                        }
+                        else if (args[i].equals("-j")) {
+                            journal = args[i+1];
+                        }
+                        else if (args[i].equals("-v")) {
+                            evicted = args[i+1];
+                        }
+                    }
+                    if (engine.equals("nio") && (maxSessions > 0 || queued > 0 || !threads.equals("platform"))) {
+                        System.out.println("The nio engine does not accept -s, -q nor -t");
+                        return;
+                    }
+                    if (gems != null) {
+                        try {
+                            GemStore balances = new GemStore(Paths.get(gems), GemStore.FORCE_PERIOD);
+                            PlayersList.getInstance().setGemStore(balances);
+                            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                                try {
+                                    balances.close();
+                                } catch (IOException ex) {
+                                    System.out.println(ex.getMessage());
+                                }
+                            }));
+                        } catch (IOException ex) {
+                            System.out.println(ex.getMessage());
+                        }
+                    }
+                    if (journal != null) {
+                        try {
+                            GemLedger ledger = new GemLedger(Paths.get(journal), GemLedger.SNAPSHOT_EVENTS, GemLedger.AUDIT_LOGS);
+                            PlayersList.getInstance().setGemLedger(ledger);
+                            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                                try {
+                                    ledger.close();
+                                } catch (IOException ex) {
+                                    System.out.println(ex.getMessage());
+                                }
+                            }));
+                        } catch (IOException ex) {
+                            System.out.println(ex.getMessage());
+                        }
+                    }
+                    if (idle > 0 || maxPlayers > 0) {
+                        try {
+                            PlayerStore store = new PlayerStore(Paths.get(evicted));
+                            PlayersList.getInstance().configureEviction(idle * 1000L, maxPlayers, store);
+                        } catch (IOException ex) {
+                            System.out.println(ex.getMessage());
+                        }
+                    }
+                    Executor sessions = null;
+                    ThreadFactory factory = Executors.defaultThreadFactory();
+                    if (threads.equals("virtual")) {
+                        try {
+                            factory = ClientHandler.newVirtualThreadFactory();
+                            sessions = ClientHandler.newVirtualThreadExecutor();
+                        } catch (UnsupportedOperationException ex) {
+                            System.out.println(ex.getMessage() + ", using platform threads");
+                        }
+                    }
+                    if (maxSessions > 0) {
+                        sessions = new SessionPool(maxSessions, queued, factory);
+                    }
+                    if (engine.equals("nio")) {
+                        try {
+                            new NioServer(port, option).serve();
+                        } catch (IOException ex) {
+                            System.out.println(ex.getMessage());
+                        }
+                    }
+                    else if (option == 1) {
                         try {
                             ServerSocket server = new ServerSocket(port);
 
@@ -33,8 +155,8 @@ public class Server {
                                 Socket socket;
                                 socket = server.accept();
                                 socket.setSoTimeout(60*1000);
-                                Thread client = new ClientHandler1p(socket, port);
-                                client.start();
+                                ClientHandler client = new ClientHandler1p(socket, port);
+                                client.launch(sessions);
                             }
                         } catch (IOException ex) {
                             System.out.println(ex.getMessage());
@@ -43,15 +165,10 @@ public class Server {
                     else if (option == 2){
                         try {
                             ServerSocket server = new ServerSocket(port);
+                            Matchmaker matchmaker = new Matchmaker(sessions, factory);
 
                             while (true) {
-                                Socket socket1, socket2;
-                                socket1 = server.accept();
-                                socket1.setSoTimeout(500);
-                                socket2 = server.accept();
-                                socket2.setSoTimeout(500);
-                                Thread game = new ClientHandler2p(socket1, socket2);
-                                game.start();
+                                matchmaker.join(server.accept());
                             }
                         } catch (IOException ex) {
                             System.out.println(ex.getMessage());
@@ -67,7 +184,7 @@ public class Server {
             }
         }
         else if (args != null && args[0].equals("-h")){
-            System.out.println("Us: java Server -p <port> -m [1|2]");
+            System.out.println("Us: java Server -p <port> -m [1|2] [-e thread [-t platform|virtual] [-s <sessions> -q <queued>] | -e nio] [-i <idle seconds>] [-l <players>] [-v <evicted players file>] [-g <gems file>] [-j <ledger directory>]");
         }
         else {
             System.out.println("Not enough arguments");
@@ -0,0 +1,58 @@
+import Model.Simulator;
+import Model.Strategy;
+
+/**
+ * Main class for the simulations comparing the strategies of the server and the player
+ * @author Oriol-Manu
+ */
+public class Simulation {
+
+    /**
+     * Plays the rounds and prints the results for the player
+     *
+     * @param args -r for the number of rounds (1000000 predetermined), -s for the server's
+     *             strategy (OPTIMAL predetermined), -c for the player's strategy (all of
+     *             them predetermined) and -d for the seed (random predetermined)
+     */
+    public static void main(String[] args) {
+        if (args != null && args.length > 0 && args[0].equals("-h")) {
+            System.out.println("Us: java Simulation [-r <rounds>] [-s <strategy>] [-c <strategy>] [-d <seed>]");
+            System.out.println("Strategies: OPTIMAL, SERVER_HEURISTIC, CLIENT_HEURISTIC, NEVER_PASS");
+            return;
+        }
+        long rounds = 1000000;
+        Strategy house = Strategy.OPTIMAL;
+        Strategy[] players = Strategy.values();
+        long seed = System.nanoTime();
+        try {
+            for (int i = 0; args != null && i + 1 < args.length; i += 2) {
+                if (args[i].equals("-r")) {
+                    rounds = Long.parseLong(args[i+1]);
+                }
+                else if (args[i].equals("-s")) {
+                    house = Strategy.valueOf(args[i+1]);
+                }
+                else if (args[i].equals("-c")) {
+                    players = new Strategy[] {Strategy.valueOf(args[i+1])};
+                }
+                else if (args[i].equals("-d")) {
+                    seed = Long.parseLong(args[i+1]);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            System.out.println(ex.getMessage());
+            return;
+        }
+        System.out.println("Server playing " + house + ", seed " + seed);
+        for (Strategy player : players) {
+            long start = System.currentTimeMillis();
+            try {
+                Simulator.Report report = Simulator.run(rounds, house, player, seed);
+                System.out.println(player + ": " + report + " in " + (System.currentTimeMillis() - start) + " ms");
+            } catch (IllegalStateException ex) {
+                System.out.println(player + ": " + ex.getMessage());
+                return;
+            }
+        }
+    }
+}
@@ -2,8 +2,6 @@ package utils;
 
 import utils.Exceptions.DatagramSyntacticException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
 
 /**
  * Class to build command Datagrams from data read
@@ -11,7 +9,7 @@ import java.util.HashMap;
  */
 public class DataAssembler {
 
-    private final HashMap<Commands, AssemblerCommand> assemblers;
+    private final AssemblerCommand[] assemblers;
     private final ComUtils com;
 
     /**
@@ -19,6 +17,11 @@ public class DataAssembler {
      */
     public final static int ERROR_HEADER = 2;
 
+    /**
+     * Maximum length of an error message (the longest one its header can tell)
+     */
+    public final static int MAX_MESSAGE = 99;
+
     /**
      * Maximum number of dices
      */
@@ -30,44 +33,43 @@ public class DataAssembler {
     public static final int MAX_ROLLS = 3;
 
     /**
-     * Constructor building the hash table for the selector pattern depending on the command
+     * Constructor building the table for the selector pattern, indexed by the ordinal of the command
      * @param com communication class for receiving and seding information
      */
     public DataAssembler (ComUtils com) {
         this.com = com;
-        this.assemblers = new HashMap<>();
-        assemblers.put(Commands.CASH,new CashAssembler());
-        assemblers.put(Commands.LOOT, new LootAssembler());
-        assemblers.put(Commands.PLAY, new PlayAssembler());
-        assemblers.put(Commands.DICE, new DiceAssembler());
-        assemblers.put(Commands.TAKE,new TakeAssembler());
-        assemblers.put(Commands.PASS, new PassAssembler());
-        assemblers.put(Commands.PNTS, new PntsAssembler());
-        assemblers.put(Commands.WINS, new WinsAssembler());
-        assemblers.put(Commands.ERRO, new ErroAssembler());
-        assemblers.put(Commands.STRT, new StrtAssembler());
-        assemblers.put(Commands.BETT, new BettAssembler());
-        assemblers.put(Commands.EXIT, new ExitAssembler());
+        this.assemblers = new AssemblerCommand[Commands.values().length];
+        assemblers[Commands.CASH.ordinal()] = new CashAssembler();
+        assemblers[Commands.LOOT.ordinal()] = new LootAssembler();
+        assemblers[Commands.PLAY.ordinal()] = new PlayAssembler();
+        assemblers[Commands.DICE.ordinal()] = new DiceAssembler();
+        assemblers[Commands.TAKE.ordinal()] = new TakeAssembler();
+        assemblers[Commands.PASS.ordinal()] = new PassAssembler();
+        assemblers[Commands.PNTS.ordinal()] = new PntsAssembler();
+        assemblers[Commands.WINS.ordinal()] = new WinsAssembler();
+        assemblers[Commands.ERRO.ordinal()] = new ErroAssembler();
+        assemblers[Commands.STRT.ordinal()] = new StrtAssembler();
+        assemblers[Commands.BETT.ordinal()] = new BettAssembler();
+        assemblers[Commands.EXIT.ordinal()] = new ExitAssembler();
     }
 
     /**
-     * Waits for a command to be received and builds a package with selector pattern
+     * Waits for a command to be received and builds a package with selector pattern.
+     * The 4 bytes of the command are read as an int and looked up in the perfect
+     * hash table of Commands, so unknown commands are rejected without building
+     * any string
      * @return a datagram with the information received
      * @throws IOException if the stream is not available
      * @throws DatagramSyntacticException if the command received is not well built
      */
     public Datagram assembleDatagram() throws IOException, DatagramSyntacticException {
 
-        String cmd = com.read_string();
-        Commands command;
-        
-        try{
-            command = Commands.valueOf(cmd);
-        }catch(Exception e){
-            throw new DatagramSyntacticException("The command does not exist");
+        Commands command = Commands.fromOpcode(com.read_int32());
+        if (command == null) {
+            throw new DatagramSyntacticException("The command does not exist", false);
         }
 
-        Datagram datagram = assemblers.get(command).assemble();
+        Datagram datagram = assemblers[command.ordinal()].assemble();
         return datagram;
 
     }
@@ -78,10 +80,7 @@ public class DataAssembler {
      * @throws IOException if the stream is not available
      */
     private void skipSpace() throws DatagramSyntacticException, IOException {
-        Character sp = com.read_char();
-        Character aux = ' ';
-
-        if(!sp.equals(aux)){
+        if(com.read_char() != ' '){
             throw new DatagramSyntacticException("There is not an space between command parameters");
         }
     }
@@ -119,7 +118,7 @@ public class DataAssembler {
                 throw new DatagramSyntacticException("Gems cannot be negative");
             }
 
-            db.addParam(ParamNames.COINS.name(), gems);
+            db.addParam(ParamNames.COINS, gems);
 
             return db.build();
         }
@@ -145,7 +144,7 @@ public class DataAssembler {
                 throw new DatagramSyntacticException("Loot cannot be less than two");
             }
 
-            db.addParam(ParamNames.COINS.name(), loot);
+            db.addParam(ParamNames.COINS, loot);
 
             return db.build();
         }
@@ -165,13 +164,13 @@ public class DataAssembler {
             Datagram.Builder db= new Datagram.Builder();
             db.withType(Commands.PLAY);
 
-            int player =  Integer.parseInt(String.valueOf(com.read_char()));
+            int player = Character.digit(com.read_char(), 10);
 
             if(player < 0 || player > 1){
                 throw new DatagramSyntacticException("This is a two player game");
             }
 
-            db.addParam(ParamNames.PLAYER.name(),player);
+            db.addParam(ParamNames.PLAYER,player);
 
             return db.build();
         }
@@ -190,20 +189,20 @@ public class DataAssembler {
             skipSpace();
             Datagram.Builder db = new Datagram.Builder();
             db.withType(Commands.DICE);
-            db.addParam(ParamNames.ID.name(), com.read_int32());
+            db.addParam(ParamNames.ID, com.read_int32());
 
-            ArrayList<Integer> aInt = new ArrayList<>();
+            int hand = DiceHand.EMPTY;
             for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
                 skipSpace();
-                Integer dice = Integer.parseInt(String.valueOf(com.read_char()));
+                int dice = Character.digit(com.read_char(), 10);
                 if(1<=dice && dice<=6){
-                    aInt.add(dice);
+                    hand = DiceHand.add(hand, dice);
                 }else{
                     throw new DatagramSyntacticException("Dices must be between 1-6");
                 }
             }
 
-            db.addParam(ParamNames.DICES.name(), aInt);
+            db.addHand(ParamNames.DICES, hand);
             return db.build();
         }
     }
@@ -221,9 +220,9 @@ public class DataAssembler {
             skipSpace();
             Datagram.Builder db = new Datagram.Builder();
             db.withType(Commands.TAKE);
-            db.addParam(ParamNames.ID.name(), com.read_int32());
+            db.addParam(ParamNames.ID, com.read_int32());
 
-            ArrayList<Integer> aInt = new ArrayList<>();
+            int hand = DiceHand.EMPTY;
             skipSpace();
 
             int size = com.read_int8();
@@ -238,10 +237,10 @@ public class DataAssembler {
                 if(dicePos < 1 || dicePos > 5){
                     throw new DatagramSyntacticException("Dice positions must be between 1 and 5");
                 }
-                aInt.add(dicePos);
+                hand = DiceHand.add(hand, dicePos);
             }
 
-            db.addParam(ParamNames.DICES.name(), aInt);
+            db.addHand(ParamNames.DICES, hand);
 
             return db.build();
         }
@@ -260,7 +259,7 @@ public class DataAssembler {
             skipSpace();
             Datagram d = new Datagram.Builder()
                     .withType(Commands.PASS)
-                    .addParam(ParamNames.ID.name(), com.read_int32()).build();
+                    .addParam(ParamNames.ID, com.read_int32()).build();
 
             return d;
         }
@@ -279,7 +278,7 @@ public class DataAssembler {
             skipSpace();
             Datagram.Builder db = new Datagram.Builder()
                     .withType(Commands.PNTS)
-                    .addParam(ParamNames.ID.name(), com.read_int32());
+                    .addParam(ParamNames.ID, com.read_int32());
 
             skipSpace();
             int pnts = com.read_int8();
@@ -288,7 +287,7 @@ public class DataAssembler {
                 throw new DatagramSyntacticException("Points must be 0 or grater that one or less that 13");
             }
 
-            db.addParam(ParamNames.POINTS.name(), pnts);
+            db.addParam(ParamNames.POINTS, pnts);
 
             return db.build();
         }
@@ -308,13 +307,13 @@ public class DataAssembler {
             Datagram.Builder db = new Datagram.Builder();
             db.withType(Commands.WINS);
 
-            int winner = Integer.parseInt(String.valueOf(com.read_char()));
+            int winner = Character.digit(com.read_char(), 10);
 
             if(winner < 0 || winner > 2){
                 throw new DatagramSyntacticException("Winner not defined");
             }
 
-            db.addParam(ParamNames.WINNER.name(), winner);
+            db.addParam(ParamNames.WINNER, winner);
 
             return db.build();
         }
@@ -333,7 +332,7 @@ public class DataAssembler {
             skipSpace();
             Datagram d = new Datagram.Builder()
                     .withType(Commands.ERRO)
-                    .addParam(ParamNames.MESSAGE.name(), com.read_string_variable(ERROR_HEADER))
+                    .addParam(ParamNames.MESSAGE, com.read_string_variable(ERROR_HEADER))
                     .build();
 
             return d;
@@ -353,7 +352,7 @@ public class DataAssembler {
             skipSpace();
             Datagram d = new Datagram.Builder()
                     .withType(Commands.STRT)
-                    .addParam(ParamNames.ID.name(), com.read_int32())
+                    .addParam(ParamNames.ID, com.read_int32())
                     .build();
 
             return d;
@@ -33,12 +33,23 @@ public class DataDisassembler {
     }
 
     /**
-     * Sends the given datagram to the stream in the appropiate form
+     * Sends the given datagram to the stream in the appropiate form (with a single
+     * copy if its frame is in the FrameCache)
      * @param d datagram to be sent
      * @throws IOException if the stream is not available
      */
     public void disassembleDatagram(Datagram d) throws IOException{
-        disassemblers.get(d.getType()).disassemble(d);
+        if (!FrameCache.write(d, com)) {
+            disassemblers.get(d.getType()).disassemble(d);
+        }
+    }
+
+    /**
+     * Sends all the datagrams disassembled and not sent yet (if the stream is buffered)
+     * @throws IOException if the stream is not available
+     */
+    public void flush() throws IOException {
+        com.flush();
     }
 
     /**
@@ -65,7 +76,7 @@ public class DataDisassembler {
         public void disassemble(Datagram d) throws IOException {
             com.write_string(d.getType().getKey());
             com.write_char(' ');
-            com.write_int32(d.getParams().getIntParameter().get(ParamNames.COINS.name()));
+            com.write_int32(d.getParams().getInt(ParamNames.COINS));
         }
     }
 
@@ -80,7 +91,7 @@ public class DataDisassembler {
         public void disassemble(Datagram d) throws IOException {
             com.write_string(d.getType().getKey());
             com.write_char(' ');
-            com.write_int32(d.getParams().getIntParameter().get(ParamNames.COINS.name()));
+            com.write_int32(d.getParams().getInt(ParamNames.COINS));
         }
     }
 
@@ -95,7 +106,7 @@ public class DataDisassembler {
         public void disassemble(Datagram d) throws IOException {
             com.write_string(d.getType().getKey());
             com.write_char(' ');
-            com.write_char(Character.forDigit(d.getParams().getIntParameter().get(ParamNames.PLAYER.name()), 10));
+            com.write_char(Character.forDigit(d.getParams().getInt(ParamNames.PLAYER), 10));
         }
     }
 
@@ -110,10 +121,11 @@ public class DataDisassembler {
         public void disassemble(Datagram d) throws IOException {
             com.write_string(d.getType().getKey());
             com.write_char(' ');
-            com.write_int32(d.getParams().getIntParameter().get(ParamNames.ID.name()));
+            com.write_int32(d.getParams().getInt(ParamNames.ID));
+            int hand = d.getParams().getHand(ParamNames.DICES);
             for(int i = 0; i < DataAssembler.NUM_DICES; i++){
                 com.write_char(' ');
-                com.write_char(Character.forDigit(d.getParams().getArrayParameter().get(ParamNames.DICES.name()).get(i), 10));
+                com.write_char(Character.forDigit(DiceHand.get(hand, i), 10));
             }
         }
     }
@@ -129,12 +141,13 @@ public class DataDisassembler {
         public void disassemble(Datagram d) throws IOException {
             com.write_string(d.getType().getKey());
             com.write_char(' ');
-            com.write_int32(d.getParams().getIntParameter().get(ParamNames.ID.name()));
+            com.write_int32(d.getParams().getInt(ParamNames.ID));
             com.write_char(' ');
-            com.write_int8(d.getParams().getArrayParameter().get(ParamNames.DICES.name()).size());
-            for(int i = 0; i < d.getParams().getArrayParameter().get(ParamNames.DICES.name()).size(); i++){
+            int hand = d.getParams().getHand(ParamNames.DICES);
+            com.write_int8(DiceHand.size(hand));
+            for(int i = 0; i < DiceHand.size(hand); i++){
                 com.write_char(' ');
-                com.write_int8(d.getParams().getArrayParameter().get(ParamNames.DICES.name()).get(i));
+                com.write_int8(DiceHand.get(hand, i));
             }
         }
     }
@@ -150,7 +163,7 @@ public class DataDisassembler {
         public void disassemble(Datagram d) throws IOException {
             com.write_string(d.getType().getKey());
             com.write_char(' ');
-            com.write_int32(d.getParams().getIntParameter().get(ParamNames.ID.name()));
+            com.write_int32(d.getParams().getInt(ParamNames.ID));
         }
     }
 
@@ -165,9 +178,9 @@ public class DataDisassembler {
         public void disassemble(Datagram d) throws IOException {
             com.write_string(d.getType().getKey());
             com.write_char(' ');
-            com.write_int32(d.getParams().getIntParameter().get(ParamNames.ID.name()));
+            com.write_int32(d.getParams().getInt(ParamNames.ID));
             com.write_char(' ');
-            com.write_int8(d.getParams().getIntParameter().get(ParamNames.POINTS.name()));
+            com.write_int8(d.getParams().getInt(ParamNames.POINTS));
         }
     }
 
@@ -182,14 +195,15 @@ public class DataDisassembler {
         public void disassemble(Datagram d) throws IOException {
             com.write_string(d.getType().getKey());
             com.write_char(' ');
-            com.write_char(Character.forDigit(d.getParams().getIntParameter().get(ParamNames.WINNER.name()), 10));
+            com.write_char(Character.forDigit(d.getParams().getInt(ParamNames.WINNER), 10));
         }
     }
 
     private class ErroDisassembler implements DisassemblerCommand{
         
         /**
-         * Disassembles a datagram with ERRO command and message parameter
+         * Disassembles a datagram with ERRO command and message parameter (a message
+         * longer than DataAssembler.MAX_MESSAGE is cut)
          * @param d datagram to be sent
          * @throws IOException if the stream is not available
          */
@@ -197,7 +211,11 @@ public class DataDisassembler {
         public void disassemble(Datagram d) throws IOException {
             com.write_string(d.getType().getKey());
             com.write_char(' ');
-            com.write_string_variable(2, d.getParams().getStringParameter().get(ParamNames.MESSAGE.name()));
+            String message = d.getParams().getString(ParamNames.MESSAGE);
+            if (message.length() > DataAssembler.MAX_MESSAGE) {
+                message = message.substring(0, DataAssembler.MAX_MESSAGE);
+            }
+            com.write_string_variable(DataAssembler.ERROR_HEADER, message);
         }
     }
 
@@ -212,7 +230,7 @@ public class DataDisassembler {
         public void disassemble(Datagram d) throws IOException {
             com.write_string(d.getType().getKey());
             com.write_char(' ');
-            com.write_int32(d.getParams().getIntParameter().get(ParamNames.ID.name()));
+            com.write_int32(d.getParams().getInt(ParamNames.ID));
         }
     }
 
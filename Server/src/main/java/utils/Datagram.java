@@ -65,38 +65,79 @@ public class Datagram {
         }
 
         /**
-         * Adds an integer parameter to the hash table of parameters
-         * @param key key of the parameter in the hash table
+         * Adds an integer parameter
+         * @param key name of the parameter
          * @param value integer to be added
          * @return this builder instance
          */
-        public Builder addParam(String key, Integer value) {
-            this.params.getIntParameter().put(key,value);
+        public Builder addParam(ParamNames key, int value) {
+            this.params.setInt(key, value);
             return this;
         }
 
         /**
-         * Adds a string parameter to the hash table of parameters
-         * @param key key of the parameter in the hash table
+         * Adds a string parameter
+         * @param key name of the parameter
          * @param value string to be added
          * @return this builder instance
          */
-        public Builder addParam(String key, String value){
-            this.params.getStringParameter().put(key,value);
+        public Builder addParam(ParamNames key, String value){
+            this.params.setString(key, value);
             return this;
         }
 
         /**
-         * Adds an integer array parameter to the hash table of parameters
-         * @param key key of the parameter in the hash table
+         * Adds an integer array parameter (packed as a DiceHand)
+         * @param key name of the parameter
          * @param value integer array to be added
          * @return this builder instance
          */
-        public Builder addParam(String key, ArrayList<Integer> value){
-            this.params.getArrayParameter().put(key,value);
+        public Builder addParam(ParamNames key, ArrayList<Integer> value){
+            this.params.setArray(key, value);
             return this;
         }
 
+        /**
+         * Adds a hand of dices parameter
+         * @param key name of the parameter
+         * @param hand hand packed by DiceHand
+         * @return this builder instance
+         */
+        public Builder addHand(ParamNames key, int hand){
+            this.params.setHand(key, hand);
+            return this;
+        }
+
+        /**
+         * Adds an integer parameter given the name of its ParamNames
+         * @param key name of the parameter
+         * @param value integer to be added
+         * @return this builder instance
+         */
+        public Builder addParam(String key, Integer value) {
+            return addParam(ParamNames.valueOf(key), (int) value);
+        }
+
+        /**
+         * Adds a string parameter given the name of its ParamNames
+         * @param key name of the parameter
+         * @param value string to be added
+         * @return this builder instance
+         */
+        public Builder addParam(String key, String value){
+            return addParam(ParamNames.valueOf(key), value);
+        }
+
+        /**
+         * Adds an integer array parameter given the name of its ParamNames
+         * @param key name of the parameter
+         * @param value integer array to be added
+         * @return this builder instance
+         */
+        public Builder addParam(String key, ArrayList<Integer> value){
+            return addParam(ParamNames.valueOf(key), value);
+        }
+
         /**
          * Sets the command type of the datagram
          * @param type command type
@@ -0,0 +1,528 @@
+package utils;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import utils.Exceptions.DatagramSyntacticException;
+
+/**
+ * Class to encode Datagrams straight into a ByteBuffer (heap or direct) and decode
+ * them from one, using the same format as DataDisassembler and the same checks
+ * as DataAssembler but without any stream
+ * @author Oriol-Manu
+ */
+public class DatagramCodec {
+
+    /**
+     * Length of the command of every datagram
+     */
+    public static final int COMMAND_SIZE = 4;
+
+    private final CodecCommand[] codecs;
+
+    /**
+     * Constructor building the table for the selector pattern, indexed by the ordinal of the command
+     */
+    public DatagramCodec() {
+        this.codecs = new CodecCommand[Commands.values().length];
+        codecs[Commands.CASH.ordinal()] = new CashCodec();
+        codecs[Commands.LOOT.ordinal()] = new LootCodec();
+        codecs[Commands.PLAY.ordinal()] = new PlayCodec();
+        codecs[Commands.DICE.ordinal()] = new DiceCodec();
+        codecs[Commands.TAKE.ordinal()] = new TakeCodec();
+        codecs[Commands.PASS.ordinal()] = new PassCodec();
+        codecs[Commands.PNTS.ordinal()] = new PntsCodec();
+        codecs[Commands.WINS.ordinal()] = new WinsCodec();
+        codecs[Commands.ERRO.ordinal()] = new ErroCodec();
+        codecs[Commands.STRT.ordinal()] = new StrtCodec();
+        codecs[Commands.BETT.ordinal()] = new BettCodec();
+        codecs[Commands.EXIT.ordinal()] = new ExitCodec();
+    }
+
+    /**
+     * Writes the given datagram at the position of the buffer (with a single copy
+     * if its frame is in the FrameCache)
+     * @param d datagram to be encoded
+     * @param dst buffer to write to
+     * @throws BufferOverflowException if the datagram does not fit in the buffer
+     */
+    public void encode(Datagram d, ByteBuffer dst) {
+        if (FrameCache.put(d, dst)) {
+            return;
+        }
+        String key = d.getType().getKey();
+        for (int i = 0; i < COMMAND_SIZE; i++) {
+            dst.put(i < key.length() ? (byte) key.charAt(i) : (byte) ' ');
+        }
+        codecs[d.getType().ordinal()].encode(d, dst);
+    }
+
+    /**
+     * Reads the datagram at the position of the buffer. If the buffer does not have
+     * the whole datagram yet, its position is not changed
+     * @param src buffer to read from
+     * @return the datagram read or null if more bytes are needed
+     * @throws DatagramSyntacticException if the command is not well built
+     */
+    public Datagram decode(ByteBuffer src) throws DatagramSyntacticException {
+        if (src.remaining() < COMMAND_SIZE) {
+            return null;
+        }
+        int start = src.position();
+        Commands command = Commands.fromOpcode(src.getInt(start));
+        if (command == null) {
+            throw new DatagramSyntacticException("The command does not exist", false);
+        }
+        CodecCommand codec = codecs[command.ordinal()];
+        int size = codec.size(src, start + COMMAND_SIZE);
+        if (size < 0 || src.remaining() < COMMAND_SIZE + size) {
+            return null;
+        }
+        src.position(start + COMMAND_SIZE);
+        return codec.decode(src);
+    }
+
+    /**
+     * Checks if the buffer has a byte at the given index
+     * @param src buffer to read from
+     * @param index absolute index of the byte
+     * @return true if the byte has been received
+     */
+    private static boolean has(ByteBuffer src, int index) {
+        return index < src.limit();
+    }
+
+    /**
+     * Skips the space between parameters in commands
+     * @param src buffer to read from
+     * @throws DatagramSyntacticException if the command is not well built
+     */
+    private static void skipSpace(ByteBuffer src) throws DatagramSyntacticException {
+        if (src.get() != ' ') {
+            throw new DatagramSyntacticException("There is not an space between command parameters");
+        }
+    }
+
+    /**
+     * Reads a character representing a digit
+     * @param src buffer to read from
+     * @return value of the digit, -1 if the character is not a digit
+     */
+    private static int getDigit(ByteBuffer src) {
+        return Character.digit((char) src.get(), 10);
+    }
+
+    /**
+     * Interface to be implemented for every command codec
+     */
+    private interface CodecCommand {
+
+        /**
+         * Writes the parameters of the datagram
+         * @param d datagram to be encoded
+         * @param dst buffer to write to
+         */
+        public void encode(Datagram d, ByteBuffer dst);
+
+        /**
+         * Computes the length of the parameters from the bytes received, without
+         * moving the position of the buffer
+         * @param src buffer to read from
+         * @param start absolute index of the first byte after the command
+         * @return length of the parameters, -1 if it is not known yet
+         */
+        public int size(ByteBuffer src, int start);
+
+        /**
+         * Reads the parameters of the datagram (the command has already been read)
+         * @param src buffer to read from
+         * @return the datagram built
+         * @throws DatagramSyntacticException if the command is not well built
+         */
+        public Datagram decode(ByteBuffer src) throws DatagramSyntacticException;
+    }
+
+    private class CashCodec implements CodecCommand {
+
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+            dst.put((byte) ' ');
+            dst.putInt(d.getParams().getInt(ParamNames.COINS));
+        }
+
+        @Override
+        public int size(ByteBuffer src, int start) {
+            return 1 + 4;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) throws DatagramSyntacticException {
+            skipSpace(src);
+            int gems = src.getInt();
+            if (gems < 0) {
+                throw new DatagramSyntacticException("Gems cannot be negative");
+            }
+            return new Datagram.Builder()
+                    .withType(Commands.CASH)
+                    .addParam(ParamNames.COINS, gems)
+                    .build();
+        }
+    }
+
+    private class LootCodec implements CodecCommand {
+
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+            dst.put((byte) ' ');
+            dst.putInt(d.getParams().getInt(ParamNames.COINS));
+        }
+
+        @Override
+        public int size(ByteBuffer src, int start) {
+            return 1 + 4;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) throws DatagramSyntacticException {
+            skipSpace(src);
+            int loot = src.getInt();
+            if (loot < 2) {
+                throw new DatagramSyntacticException("Loot cannot be less than two");
+            }
+            return new Datagram.Builder()
+                    .withType(Commands.LOOT)
+                    .addParam(ParamNames.COINS, loot)
+                    .build();
+        }
+    }
+
+    private class PlayCodec implements CodecCommand {
+
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+            dst.put((byte) ' ');
+            dst.put((byte) Character.forDigit(d.getParams().getInt(ParamNames.PLAYER), 10));
+        }
+
+        @Override
+        public int size(ByteBuffer src, int start) {
+            return 2;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) throws DatagramSyntacticException {
+            skipSpace(src);
+            int player = getDigit(src);
+            if (player < 0 || player > 1) {
+                throw new DatagramSyntacticException("This is a two player game");
+            }
+            return new Datagram.Builder()
+                    .withType(Commands.PLAY)
+                    .addParam(ParamNames.PLAYER, player)
+                    .build();
+        }
+    }
+
+    private class DiceCodec implements CodecCommand {
+
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+            dst.put((byte) ' ');
+            dst.putInt(d.getParams().getInt(ParamNames.ID));
+            int hand = d.getParams().getHand(ParamNames.DICES);
+            for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
+                dst.put((byte) ' ');
+                dst.put((byte) Character.forDigit(DiceHand.get(hand, i), 10));
+            }
+        }
+
+        @Override
+        public int size(ByteBuffer src, int start) {
+            return 1 + 4 + 2 * DataAssembler.NUM_DICES;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) throws DatagramSyntacticException {
+            skipSpace(src);
+            int id = src.getInt();
+            int hand = DiceHand.EMPTY;
+            for (int i = 0; i < DataAssembler.NUM_DICES; i++) {
+                skipSpace(src);
+                int dice = getDigit(src);
+                if (dice < 1 || dice > 6) {
+                    throw new DatagramSyntacticException("Dices must be between 1-6");
+                }
+                hand = DiceHand.add(hand, dice);
+            }
+            return new Datagram.Builder()
+                    .withType(Commands.DICE)
+                    .addParam(ParamNames.ID, id)
+                    .addHand(ParamNames.DICES, hand)
+                    .build();
+        }
+    }
+
+    private class TakeCodec implements CodecCommand {
+
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+            dst.put((byte) ' ');
+            dst.putInt(d.getParams().getInt(ParamNames.ID));
+            int hand = d.getParams().getHand(ParamNames.DICES);
+            dst.put((byte) ' ');
+            dst.put((byte) DiceHand.size(hand));
+            for (int i = 0; i < DiceHand.size(hand); i++) {
+                dst.put((byte) ' ');
+                dst.put((byte) DiceHand.get(hand, i));
+            }
+        }
+
+        /**
+         * The number of positions taken is the byte after the id. If it is wrong, the
+         * datagram is decoded as soon as it arrives to report the error
+         */
+        @Override
+        public int size(ByteBuffer src, int start) {
+            if (!has(src, start + 6)) {
+                return -1;
+            }
+            int size = src.get(start + 6) & 0xFF;
+            return size > 3 ? 7 : 7 + 2 * size;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) throws DatagramSyntacticException {
+            skipSpace(src);
+            int id = src.getInt();
+            skipSpace(src);
+            int size = src.get() & 0xFF;
+            if (size > 3) {
+                throw new DatagramSyntacticException("User can take between 0 and 3 dices");
+            }
+            int hand = DiceHand.EMPTY;
+            for (int i = 0; i < size; i++) {
+                skipSpace(src);
+                int dicePos = src.get() & 0xFF;
+                if (dicePos < 1 || dicePos > 5) {
+                    throw new DatagramSyntacticException("Dice positions must be between 1 and 5");
+                }
+                hand = DiceHand.add(hand, dicePos);
+            }
+            return new Datagram.Builder()
+                    .withType(Commands.TAKE)
+                    .addParam(ParamNames.ID, id)
+                    .addHand(ParamNames.DICES, hand)
+                    .build();
+        }
+    }
+
+    private class PassCodec implements CodecCommand {
+
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+            dst.put((byte) ' ');
+            dst.putInt(d.getParams().getInt(ParamNames.ID));
+        }
+
+        @Override
+        public int size(ByteBuffer src, int start) {
+            return 1 + 4;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) throws DatagramSyntacticException {
+            skipSpace(src);
+            return new Datagram.Builder()
+                    .withType(Commands.PASS)
+                    .addParam(ParamNames.ID, src.getInt())
+                    .build();
+        }
+    }
+
+    private class PntsCodec implements CodecCommand {
+
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+            dst.put((byte) ' ');
+            dst.putInt(d.getParams().getInt(ParamNames.ID));
+            dst.put((byte) ' ');
+            dst.put((byte) d.getParams().getInt(ParamNames.POINTS));
+        }
+
+        @Override
+        public int size(ByteBuffer src, int start) {
+            return 1 + 4 + 2;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) throws DatagramSyntacticException {
+            skipSpace(src);
+            int id = src.getInt();
+            skipSpace(src);
+            int pnts = src.get() & 0xFF;
+            if (!(pnts == 0 || ((pnts >= 2) && (pnts <= 12)))) {
+                throw new DatagramSyntacticException("Points must be 0 or grater that one or less that 13");
+            }
+            return new Datagram.Builder()
+                    .withType(Commands.PNTS)
+                    .addParam(ParamNames.ID, id)
+                    .addParam(ParamNames.POINTS, pnts)
+                    .build();
+        }
+    }
+
+    private class WinsCodec implements CodecCommand {
+
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+            dst.put((byte) ' ');
+            dst.put((byte) Character.forDigit(d.getParams().getInt(ParamNames.WINNER), 10));
+        }
+
+        @Override
+        public int size(ByteBuffer src, int start) {
+            return 2;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) throws DatagramSyntacticException {
+            skipSpace(src);
+            int winner = getDigit(src);
+            if (winner < 0 || winner > 2) {
+                throw new DatagramSyntacticException("Winner not defined");
+            }
+            return new Datagram.Builder()
+                    .withType(Commands.WINS)
+                    .addParam(ParamNames.WINNER, winner)
+                    .build();
+        }
+    }
+
+    private class ErroCodec implements CodecCommand {
+
+        /**
+         * The message is preceded by its length written as DataAssembler.ERROR_HEADER
+         * decimal characters (same as ComUtils.write_string_variable). A message longer
+         * than DataAssembler.MAX_MESSAGE is cut, since its length would not fit
+         */
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+            String message = d.getParams().getString(ParamNames.MESSAGE);
+            if (message.length() > DataAssembler.MAX_MESSAGE) {
+                message = message.substring(0, DataAssembler.MAX_MESSAGE);
+            }
+            String header = String.valueOf(message.length());
+            while (header.length() < DataAssembler.ERROR_HEADER) {
+                header = "0" + header;
+            }
+            dst.put((byte) ' ');
+            for (int i = 0; i < DataAssembler.ERROR_HEADER; i++) {
+                dst.put((byte) header.charAt(i));
+            }
+            for (int i = 0; i < message.length(); i++) {
+                dst.put((byte) message.charAt(i));
+            }
+        }
+
+        /**
+         * The length of the message is its header. If the header is not a number, the
+         * datagram is decoded as soon as it arrives to report the error
+         */
+        @Override
+        public int size(ByteBuffer src, int start) {
+            if (!has(src, start + DataAssembler.ERROR_HEADER)) {
+                return -1;
+            }
+            int length = 0;
+            for (int i = 1; i <= DataAssembler.ERROR_HEADER; i++) {
+                int digit = Character.digit((char) src.get(start + i), 10);
+                if (digit < 0) {
+                    return 1 + DataAssembler.ERROR_HEADER;
+                }
+                length = length * 10 + digit;
+            }
+            return 1 + DataAssembler.ERROR_HEADER + length;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) throws DatagramSyntacticException {
+            skipSpace(src);
+            int length = 0;
+            for (int i = 0; i < DataAssembler.ERROR_HEADER; i++) {
+                int digit = getDigit(src);
+                if (digit < 0) {
+                    throw new DatagramSyntacticException("The length of the message is not a number");
+                }
+                length = length * 10 + digit;
+            }
+            char[] message = new char[length];
+            for (int i = 0; i < length; i++) {
+                message[i] = (char) src.get();
+            }
+            return new Datagram.Builder()
+                    .withType(Commands.ERRO)
+                    .addParam(ParamNames.MESSAGE, String.valueOf(message))
+                    .build();
+        }
+    }
+
+    private class StrtCodec implements CodecCommand {
+
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+            dst.put((byte) ' ');
+            dst.putInt(d.getParams().getInt(ParamNames.ID));
+        }
+
+        @Override
+        public int size(ByteBuffer src, int start) {
+            return 1 + 4;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) throws DatagramSyntacticException {
+            skipSpace(src);
+            return new Datagram.Builder()
+                    .withType(Commands.STRT)
+                    .addParam(ParamNames.ID, src.getInt())
+                    .build();
+        }
+    }
+
+    private class BettCodec implements CodecCommand {
+
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+        }
+
+        @Override
+        public int size(ByteBuffer src, int start) {
+            return 0;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) {
+            return new Datagram.Builder()
+                    .withType(Commands.BETT)
+                    .build();
+        }
+    }
+
+    private class ExitCodec implements CodecCommand {
+
+        @Override
+        public void encode(Datagram d, ByteBuffer dst) {
+        }
+
+        @Override
+        public int size(ByteBuffer src, int start) {
+            return 0;
+        }
+
+        @Override
+        public Datagram decode(ByteBuffer src) {
+            return new Datagram.Builder()
+                    .withType(Commands.EXIT)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package utils;
+
+import java.nio.ByteBuffer;
+import utils.Exceptions.DatagramSyntacticException;
+
+/**
+ * Resumable parser of Datagrams for non-blocking connections. It accepts the bytes
+ * in chunks of any size and keeps the bytes of the datagram not completed yet
+ * between calls, so a datagram split across several reads is built as soon as its
+ * last byte arrives. The datagrams are decoded by DatagramCodec, which waits until the
+ * length of the datagram (known from its fixed fields) has been received.
+ * Every connection needs its own parser
+ * @author Oriol-Manu
+ */
+public class DatagramParser {
+
+    /**
+     * Length of the command of every datagram
+     */
+    public static final int COMMAND_SIZE = DatagramCodec.COMMAND_SIZE;
+
+    /**
+     * Maximum length of a field (the message of an error)
+     */
+    public static final int MAX_FIELD = DataAssembler.MAX_MESSAGE;
+
+    /**
+     * Maximum length of a datagram (an error with the longest message)
+     */
+    public static final int MAX_DATAGRAM = COMMAND_SIZE + 1 + DataAssembler.ERROR_HEADER + MAX_FIELD;
+
+    private final DatagramCodec codec;
+    private final ByteBuffer pending;
+
+    /**
+     * Constructor creating the buffer of the datagram not completed yet
+     */
+    public DatagramParser() {
+        this.codec = new DatagramCodec();
+        this.pending = ByteBuffer.allocate(MAX_DATAGRAM);
+    }
+
+    /**
+     * Consumes bytes of the buffer until a datagram is complete or the buffer is
+     * empty. The bytes consumed are kept by the parser, so the buffer can be
+     * cleared after it returns null
+     * @param src buffer to read from
+     * @return the datagram completed or null if more bytes are needed
+     * @throws DatagramSyntacticException if the command is not well built (the
+     * partial datagram is discarded)
+     */
+    public Datagram parse(ByteBuffer src) throws DatagramSyntacticException {
+        while (true) {
+            int limit = src.limit();
+            src.limit(src.position() + Math.min(src.remaining(), pending.remaining()));
+            pending.put(src);
+            src.limit(limit);
+            pending.flip();
+            Datagram d;
+            try {
+                d = codec.decode(pending);
+            } catch (DatagramSyntacticException ex) {
+                reset();
+                throw ex;
+            }
+            pending.compact();
+            if (d != null || !src.hasRemaining()) {
+                return d;
+            }
+        }
+    }
+
+    /**
+     * @return true if part of a datagram has been received but not completed yet
+     */
+    public boolean isPending() {
+        return pending.position() > 0;
+    }
+
+    /**
+     * Discards the partial datagram
+     */
+    public void reset() {
+        pending.clear();
+    }
+}
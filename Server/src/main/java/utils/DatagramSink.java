@@ -0,0 +1,19 @@
+package utils;
+
+import java.io.IOException;
+
+/**
+ * Destination of the datagrams produced by the game logic. The transport decides
+ * what to do with every datagram as soon as it is produced (usually encode it and
+ * write it to the receivers), so no list of responses is kept in memory
+ * @author Oriol-Manu
+ */
+public interface DatagramSink {
+
+    /**
+     * Receives the next datagram to be sent
+     * @param d datagram produced
+     * @throws IOException if the datagram cannot be sent
+     */
+    public void emit(Datagram d) throws IOException;
+}
@@ -0,0 +1,127 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand of dice values (or dice positions) packed in a single int, so a roll can
+ * travel from the dices to the wire without boxing or creating lists. The lowest
+ * 3 bits keep the number of values and every value (1-7) takes the next 3 bits,
+ * so the 5 dices of a roll use 18 bits
+ * @author Oriol-Manu
+ */
+public final class DiceHand {
+
+    /**
+     * Hand without any value
+     */
+    public static final int EMPTY = 0;
+
+    /**
+     * Maximum number of values of a hand
+     */
+    public static final int MAX_SIZE = 7;
+
+    private static final int BITS = 3;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private DiceHand() {
+    }
+
+    /**
+     * Builds a hand with the given values
+     * @param values values of the hand (1-7)
+     * @return the packed hand
+     */
+    public static int of(int... values) {
+        int hand = EMPTY;
+        for (int value : values) {
+            hand = add(hand, value);
+        }
+        return hand;
+    }
+
+    /**
+     * Adds a value at the end of the hand
+     * @param hand packed hand
+     * @param value value to be added (1-7)
+     * @return the packed hand with the new value
+     */
+    public static int add(int hand, int value) {
+        int size = size(hand);
+        if (size == MAX_SIZE || value < 0 || value > MASK) {
+            throw new IllegalArgumentException("Value " + value + " does not fit in the hand");
+        }
+        return (hand | (value << (BITS * (size + 1)))) + 1;
+    }
+
+    /**
+     * @param hand packed hand
+     * @return number of values of the hand
+     */
+    public static int size(int hand) {
+        return hand & MASK;
+    }
+
+    /**
+     * @param hand packed hand
+     * @param i position in the hand (starting at 0)
+     * @return the value at the position
+     */
+    public static int get(int hand, int i) {
+        return (hand >>> (BITS * (i + 1))) & MASK;
+    }
+
+    /**
+     * @param hand packed hand
+     * @return sum of all values of the hand
+     */
+    public static int sum(int hand) {
+        int sum = 0;
+        for (int i = 0; i < size(hand); i++) {
+            sum += get(hand, i);
+        }
+        return sum;
+    }
+
+    /**
+     * Packs a list of values
+     * @param values list of values (1-7)
+     * @return the packed hand
+     */
+    public static int fromList(List<Integer> values) {
+        int hand = EMPTY;
+        for (Integer value : values) {
+            hand = add(hand, value);
+        }
+        return hand;
+    }
+
+    /**
+     * Unpacks the hand into a new list
+     * @param hand packed hand
+     * @return list with the values of the hand
+     */
+    public static ArrayList<Integer> toList(int hand) {
+        ArrayList<Integer> values = new ArrayList<>();
+        for (int i = 0; i < size(hand); i++) {
+            values.add(get(hand, i));
+        }
+        return values;
+    }
+
+    /**
+     * @param hand packed hand
+     * @return the values of the hand separated by spaces
+     */
+    public static String toString(int hand) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size(hand); i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(get(hand, i));
+        }
+        return sb.toString();
+    }
+}
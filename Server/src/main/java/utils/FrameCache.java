@@ -0,0 +1,186 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * Cache of the frames (the bytes sent) of the constant datagrams: BETT, EXIT, the
+ * three possible WINS and the error messages sent most often. The frames are
+ * encoded once when the class is loaded and written with a single copy, without
+ * building the fields one by one. The arrays never leave this class and the shared
+ * datagrams have frozen parameters
+ * @author Oriol-Manu
+ */
+public final class FrameCache {
+
+    /**
+     * Prefix of the errors caused by a protocol problem
+     */
+    public static final String PROTOCOL_ERROR = "Protocol error:";
+
+    /**
+     * Error sent when a player does not answer in time
+     */
+    public static final String TIMEOUT = PROTOCOL_ERROR + "Timeout problem";
+
+    /**
+     * Error sent to a player when the other player leaves the game
+     */
+    public static final String OPPONENT_DISCONNECTED = PROTOCOL_ERROR + "The opponent has disconnected";
+
+    /**
+     * Error sent to a player waiting too long for an opponent
+     */
+    public static final String NO_OPPONENT = PROTOCOL_ERROR + "No opponent found";
+
+    /**
+     * Error sent to a player sending any command before STRT
+     */
+    public static final String START_FIRST = PROTOCOL_ERROR + "Start the game first";
+
+    /**
+     * Error sent to a player betting without gems
+     */
+    public static final String NO_CASH = PROTOCOL_ERROR + "You have no cash";
+
+    /**
+     * Error sent to the clients refused because the server is saturated
+     */
+    public static final String SERVER_BUSY = "Server busy, retry";
+
+    private static final String[] KNOWN_ERRORS = {
+        TIMEOUT, OPPONENT_DISCONNECTED, NO_OPPONENT, START_FIRST, NO_CASH, SERVER_BUSY
+    };
+
+    private static final byte[] BETT_FRAME = frame(Commands.BETT, "");
+    private static final byte[] EXIT_FRAME = frame(Commands.EXIT, "");
+    private static final byte[][] WINS_FRAMES = new byte[3][];
+    private static final HashMap<String, byte[]> ERRO_FRAMES = new HashMap<>();
+    private static final HashMap<String, Datagram> ERRO_DATAGRAMS = new HashMap<>();
+
+    static {
+        for (int winner = 0; winner < WINS_FRAMES.length; winner++) {
+            WINS_FRAMES[winner] = frame(Commands.WINS, " " + winner);
+        }
+        for (String message : KNOWN_ERRORS) {
+            String length = String.valueOf(message.length());
+            while (length.length() < DataAssembler.ERROR_HEADER) {
+                length = "0" + length;
+            }
+            ERRO_FRAMES.put(message, frame(Commands.ERRO, " " + length + message));
+            ERRO_DATAGRAMS.put(message, shared(new Datagram.Builder()
+                    .withType(Commands.ERRO)
+                    .addParam(ParamNames.MESSAGE, message)
+                    .build()));
+        }
+    }
+
+    /**
+     * Shared BETT datagram (its parameters cannot be changed)
+     */
+    public static final Datagram BETT = shared(new Datagram.Builder().withType(Commands.BETT).build());
+
+    /**
+     * Shared EXIT datagram (its parameters cannot be changed)
+     */
+    public static final Datagram EXIT = shared(new Datagram.Builder().withType(Commands.EXIT).build());
+
+    private FrameCache() {
+    }
+
+    /**
+     * Returns an ERRO datagram with the given message, shared if the message is
+     * one of the known errors (its parameters cannot be changed then)
+     * @param message message of the error
+     * @return the ERRO datagram
+     */
+    public static Datagram error(String message) {
+        Datagram d = ERRO_DATAGRAMS.get(message);
+        if (d == null) {
+            d = new Datagram.Builder()
+                    .withType(Commands.ERRO)
+                    .addParam(ParamNames.MESSAGE, message)
+                    .build();
+        }
+        return d;
+    }
+
+    /**
+     * Writes the frame of the datagram to the stream if it is cached
+     * @param d datagram to be sent
+     * @param com stream to write to
+     * @return true if the frame has been written, false if it is not cached
+     * @throws IOException if the stream is not available
+     */
+    public static boolean write(Datagram d, ComUtils com) throws IOException {
+        byte[] frame = lookup(d);
+        if (frame == null) {
+            return false;
+        }
+        com.write_bytes(frame, 0, frame.length);
+        return true;
+    }
+
+    /**
+     * Copies the frame of the datagram to the buffer if it is cached
+     * @param d datagram to be encoded
+     * @param dst buffer to write to
+     * @return true if the frame has been copied, false if it is not cached
+     */
+    public static boolean put(Datagram d, ByteBuffer dst) {
+        byte[] frame = lookup(d);
+        if (frame == null) {
+            return false;
+        }
+        dst.put(frame);
+        return true;
+    }
+
+    /**
+     * Finds the frame of a datagram
+     * @param d datagram to be sent
+     * @return the frame or null if it is not cached
+     */
+    private static byte[] lookup(Datagram d) {
+        switch (d.getType()) {
+            case BETT:
+                return BETT_FRAME;
+            case EXIT:
+                return EXIT_FRAME;
+            case WINS:
+                int winner = d.getParams().getInt(ParamNames.WINNER);
+                return winner >= 0 && winner < WINS_FRAMES.length ? WINS_FRAMES[winner] : null;
+            case ERRO:
+                String message = d.getParams().getString(ParamNames.MESSAGE);
+                return message == null ? null : ERRO_FRAMES.get(message);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Freezes the parameters of a datagram shared by every session
+     * @param d datagram to be shared
+     * @return the same datagram
+     */
+    private static Datagram shared(Datagram d) {
+        d.getParams().freeze();
+        return d;
+    }
+
+    /**
+     * Encodes a frame: the command and the parameters already written as text
+     * @param command command of the frame
+     * @param params parameters (one byte per character)
+     * @return the frame
+     */
+    private static byte[] frame(Commands command, String params) {
+        String text = command.getKey() + params;
+        byte[] frame = new byte[text.length()];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) text.charAt(i);
+        }
+        return frame;
+    }
+}
@@ -7,6 +7,9 @@ import utils.Exceptions.DatagramSyntacticException;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
 
 public class AssemblerDisassemblerTest {
 
@@ -749,8 +752,62 @@ public class AssemblerDisassemblerTest {
         }
     }
 
+    /**
+     * Test that an unknown command is rejected with the usual message
+     */
+    @Test
+    public void unknown_command_test() {
+        try {
+            ComUtils comUtils = new ComUtils(new ByteArrayInputStream("DICX".getBytes()), new ByteArrayOutputStream());
+            new DataAssembler(comUtils).assembleDatagram();
+            fail("Unknown command accepted");
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        } catch (DatagramSyntacticException e) {
+            assertEquals("The command does not exist", e.getMessage());
+        }
+    }
 
+    /**
+     * Test that every opcode finds its command and any other int finds none (also
+     * the ones falling in the slot of a command)
+     */
+    @Test
+    public void opcode_dispatch_test() {
+        HashSet<Integer> known = new HashSet<>();
+        for (Commands command : Commands.values()) {
+            String key = command.getKey();
+            int opcode = (key.charAt(0) << 24) | (key.charAt(1) << 16) | (key.charAt(2) << 8) | key.charAt(3);
+            assertEquals(opcode, command.getOpcode());
+            assertSame(command, Commands.fromOpcode(opcode));
+            assertNull(Commands.fromOpcode(opcode ^ 0x20));
+            assertNull(Commands.fromOpcode(opcode + (1 << (32 - Commands.OPCODE_BITS))));
+            known.add(opcode);
+        }
+        assertNull(Commands.fromOpcode(0));
+        assertNull(Commands.fromOpcode(-1));
+        assertNull(Commands.fromOpcode(('D' << 24) | ('I' << 16) | ('C' << 8) | 'X'));
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            int opcode = random.nextInt();
+            if (!known.contains(opcode)) {
+                assertNull(Commands.fromOpcode(opcode));
+            }
+        }
+    }
 
-
-
+    /**
+     * Test that reading a parameter that has not been set fails instead of returning 0
+     */
+    @Test
+    public void unset_parameter_test() {
+        Datagram d = new Datagram.Builder().withType(Commands.STRT).addParam(ParamNames.ID, 1).build();
+        assertEquals(1, d.getParams().getInt(ParamNames.ID));
+        try {
+            d.getParams().getInt(ParamNames.POINTS);
+            fail("Unset parameter read");
+        } catch (NoSuchElementException e) {
+            assertEquals("Parameter POINTS not set", e.getMessage());
+        }
+    }
 }
@@ -1,7 +1,10 @@
 import org.junit.Test;
 import static org.junit.Assert.*;
 import utils.ComUtils;
+import utils.Commands;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -93,4 +96,42 @@ public class ComUtilsTest {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Test that the fields of consecutive datagrams read through the scratch buffer
+     * keep their values (the buffer is reused by every read)
+     */
+    @Test
+    public void read_path_test() {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ComUtils writer = new ComUtils(new ByteArrayInputStream(new byte[0]), bos);
+            for (int id = 0; id < 3; id++) {
+                writer.write_string("DICE");
+                writer.write_char(' ');
+                writer.write_int32(id * 1000 - 1);
+                for (int i = 0; i < 5; i++) {
+                    writer.write_char(' ');
+                    writer.write_char((char) ('1' + (id + i) % 6));
+                }
+            }
+            writer.write_string("ABCD");
+            writer.write_int8(200);
+
+            ComUtils comUtils = new ComUtils(new ByteArrayInputStream(bos.toByteArray()), new ByteArrayOutputStream());
+            for (int id = 0; id < 3; id++) {
+                assertSame(Commands.DICE.getKey(), comUtils.read_string());
+                assertEquals(' ', comUtils.read_char());
+                assertEquals(id * 1000 - 1, comUtils.read_int32());
+                for (int i = 0; i < 5; i++) {
+                    assertEquals(' ', comUtils.read_char());
+                    assertEquals((char) ('1' + (id + i) % 6), comUtils.read_char());
+                }
+            }
+            assertEquals("ABCD", comUtils.read_string());
+            assertEquals(200, comUtils.read_int8());
+        } catch (IOException e) {
+            fail(e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,189 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import utils.*;
+import utils.Exceptions.DatagramSyntacticException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class DatagramCodecTest {
+
+    /**
+     * Test that the codec writes the same bytes as the disassembler and reads them back
+     */
+    @Test
+    public void codec_same_format_test() {
+        ArrayList<Integer> dices = new ArrayList<>(Arrays.asList(1, 2, 3, 4, 5));
+        ArrayList<Integer> taken = new ArrayList<>(Arrays.asList(1, 3));
+        Datagram[] datagrams = {
+            new Datagram.Builder().withType(Commands.STRT).addParam(ParamNames.ID, 7).build(),
+            new Datagram.Builder().withType(Commands.CASH).addParam(ParamNames.COINS, 10).build(),
+            new Datagram.Builder().withType(Commands.LOOT).addParam(ParamNames.COINS, 4).build(),
+            new Datagram.Builder().withType(Commands.PLAY).addParam(ParamNames.PLAYER, 1).build(),
+            new Datagram.Builder().withType(Commands.DICE).addParam(ParamNames.ID, 7)
+                    .addParam(ParamNames.DICES, dices).build(),
+            new Datagram.Builder().withType(Commands.TAKE).addParam(ParamNames.ID, 7)
+                    .addParam(ParamNames.DICES, taken).build(),
+            new Datagram.Builder().withType(Commands.PASS).addParam(ParamNames.ID, 7).build(),
+            new Datagram.Builder().withType(Commands.PNTS).addParam(ParamNames.ID, 7)
+                    .addParam(ParamNames.POINTS, 9).build(),
+            new Datagram.Builder().withType(Commands.WINS).addParam(ParamNames.WINNER, 2).build(),
+            new Datagram.Builder().withType(Commands.ERRO)
+                    .addParam(ParamNames.MESSAGE, "Protocol error:Timeout problem").build(),
+            new Datagram.Builder().withType(Commands.BETT).build(),
+            new Datagram.Builder().withType(Commands.EXIT).build()
+        };
+        try {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            DataDisassembler dd = new DataDisassembler(new ComUtils(new ByteArrayInputStream(new byte[0]), stream));
+            DatagramCodec codec = new DatagramCodec();
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            for (Datagram d : datagrams) {
+                dd.disassembleDatagram(d);
+                codec.encode(d, buffer);
+            }
+            buffer.flip();
+            byte[] encoded = new byte[buffer.remaining()];
+            buffer.duplicate().get(encoded);
+
+            assertArrayEquals(stream.toByteArray(), encoded);
+            for (Datagram d : datagrams) {
+                assertEquals(d, codec.decode(buffer));
+            }
+            assertFalse(buffer.hasRemaining());
+
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        } catch (DatagramSyntacticException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Test that an incomplete datagram is not consumed until the rest of bytes arrive
+     */
+    @Test
+    public void codec_partial_datagram_test() {
+        try {
+            ArrayList<Integer> dices = new ArrayList<>(Arrays.asList(6, 5, 4, 3, 2));
+            Datagram d = new Datagram.Builder().withType(Commands.DICE).addParam(ParamNames.ID, 3)
+                    .addParam(ParamNames.DICES, dices).build();
+            DatagramCodec codec = new DatagramCodec();
+            ByteBuffer full = ByteBuffer.allocate(64);
+            codec.encode(d, full);
+            full.flip();
+
+            ByteBuffer partial = ByteBuffer.allocate(64);
+            partial.put(full.array(), 0, full.limit() - 1);
+            partial.flip();
+            assertNull(codec.decode(partial));
+            assertEquals(0, partial.position());
+
+            partial.limit(full.limit());
+            partial.put(full.limit() - 1, full.get(full.limit() - 1));
+            assertEquals(d, codec.decode(partial));
+
+        } catch (DatagramSyntacticException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Test that the cached frames have the protocol format and are decoded back
+     */
+    @Test
+    public void frame_cache_test() {
+        Datagram wins = new Datagram.Builder().withType(Commands.WINS)
+                .addParam(ParamNames.WINNER, 1).addParam(ParamNames.RECEIVER, 0).build();
+        Datagram timeout = FrameCache.error(FrameCache.TIMEOUT);
+        Datagram other = FrameCache.error("Protocol error:Incorrect dice choice");
+        assertSame(timeout, FrameCache.error(FrameCache.TIMEOUT));
+        assertNotSame(other, FrameCache.error("Protocol error:Incorrect dice choice"));
+
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        assertTrue(FrameCache.put(FrameCache.BETT, buffer));
+        assertTrue(FrameCache.put(wins, buffer));
+        assertTrue(FrameCache.put(timeout, buffer));
+        assertFalse(FrameCache.put(other, buffer));
+        assertEquals("BETTWINS 1ERRO 30Protocol error:Timeout problem",
+                new String(buffer.array(), 0, buffer.position()));
+
+        try {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            DataDisassembler dd = new DataDisassembler(new ComUtils(new ByteArrayInputStream(new byte[0]), stream));
+            dd.disassembleDatagram(FrameCache.EXIT);
+            dd.disassembleDatagram(timeout);
+            dd.disassembleDatagram(other);
+            DataAssembler da = new DataAssembler(new ComUtils(new ByteArrayInputStream(stream.toByteArray()), stream));
+            assertEquals(FrameCache.EXIT, da.assembleDatagram());
+            assertEquals(timeout, da.assembleDatagram());
+            assertEquals(other, da.assembleDatagram());
+
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        } catch (DatagramSyntacticException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Test that the parameters of the shared datagrams cannot be changed
+     */
+    @Test
+    public void frame_cache_frozen_test() {
+        Datagram[] shared = {FrameCache.BETT, FrameCache.EXIT, FrameCache.error(FrameCache.TIMEOUT)};
+        for (Datagram d : shared) {
+            try {
+                d.getParams().setString(ParamNames.MESSAGE, "Changed");
+                fail("Shared " + d.getType() + " changed");
+            } catch (UnsupportedOperationException e) {
+                assertEquals("Parameters of a shared datagram cannot be changed", e.getMessage());
+            }
+        }
+        assertEquals(FrameCache.TIMEOUT, FrameCache.error(FrameCache.TIMEOUT).getParams().getString(ParamNames.MESSAGE));
+
+        Datagram other = FrameCache.error("Protocol error:Incorrect dice choice");
+        other.getParams().setInt(ParamNames.RECEIVER, 1);
+        assertEquals(1, other.getParams().getInt(ParamNames.RECEIVER));
+    }
+
+    /**
+     * Test that a message too long for its header is cut the same way by the codec and
+     * the disassembler, so the next datagram is still read
+     */
+    @Test
+    public void long_error_test() {
+        StringBuilder text = new StringBuilder(FrameCache.PROTOCOL_ERROR);
+        while (text.length() <= DataAssembler.MAX_MESSAGE + 20) {
+            text.append("too long ");
+        }
+        Datagram error = new Datagram.Builder().withType(Commands.ERRO)
+                .addParam(ParamNames.MESSAGE, text.toString()).build();
+        Datagram cut = new Datagram.Builder().withType(Commands.ERRO)
+                .addParam(ParamNames.MESSAGE, text.substring(0, DataAssembler.MAX_MESSAGE)).build();
+        try {
+            DatagramCodec codec = new DatagramCodec();
+            ByteBuffer buffer = ByteBuffer.allocate(256);
+            codec.encode(error, buffer);
+            codec.encode(FrameCache.EXIT, buffer);
+            buffer.flip();
+            byte[] encoded = new byte[buffer.remaining()];
+            buffer.get(encoded);
+            buffer.flip();
+            assertEquals(cut, codec.decode(buffer));
+            assertEquals(FrameCache.EXIT, codec.decode(buffer));
+
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            DataDisassembler dd = new DataDisassembler(new ComUtils(new ByteArrayInputStream(new byte[0]), stream));
+            dd.disassembleDatagram(error);
+            dd.disassembleDatagram(FrameCache.EXIT);
+            dd.flush();
+            assertArrayEquals(encoded, stream.toByteArray());
+        } catch (IOException | DatagramSyntacticException e) {
+            fail(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import utils.*;
+import utils.Exceptions.DatagramSyntacticException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class DatagramParserTest {
+
+    /**
+     * Test that datagrams split in chunks of every size are built once complete
+     */
+    @Test
+    public void parser_split_chunks_test() {
+        ArrayList<Integer> dices = new ArrayList<>(Arrays.asList(6, 1, 2, 5, 3));
+        ArrayList<Integer> taken = new ArrayList<>(Arrays.asList(2, 4, 5));
+        Datagram[] datagrams = {
+            new Datagram.Builder().withType(Commands.STRT).addParam(ParamNames.ID, 1234).build(),
+            new Datagram.Builder().withType(Commands.BETT).build(),
+            new Datagram.Builder().withType(Commands.DICE).addParam(ParamNames.ID, 1234)
+                    .addParam(ParamNames.DICES, dices).build(),
+            new Datagram.Builder().withType(Commands.TAKE).addParam(ParamNames.ID, 1234)
+                    .addParam(ParamNames.DICES, taken).build(),
+            new Datagram.Builder().withType(Commands.PNTS).addParam(ParamNames.ID, 1234)
+                    .addParam(ParamNames.POINTS, 12).build(),
+            new Datagram.Builder().withType(Commands.ERRO)
+                    .addParam(ParamNames.MESSAGE, "Protocol error:Timeout problem").build(),
+            new Datagram.Builder().withType(Commands.ERRO).addParam(ParamNames.MESSAGE, "").build(),
+            new Datagram.Builder().withType(Commands.EXIT).build()
+        };
+        DatagramCodec codec = new DatagramCodec();
+        ByteBuffer stream = ByteBuffer.allocate(1024);
+        for (Datagram d : datagrams) {
+            codec.encode(d, stream);
+        }
+        stream.flip();
+        byte[] bytes = new byte[stream.remaining()];
+        stream.get(bytes);
+
+        try {
+            for (int chunk = 1; chunk <= bytes.length; chunk++) {
+                DatagramParser parser = new DatagramParser();
+                ArrayList<Datagram> parsed = new ArrayList<>();
+                for (int off = 0; off < bytes.length; off += chunk) {
+                    ByteBuffer in = ByteBuffer.wrap(bytes, off, Math.min(chunk, bytes.length - off));
+                    Datagram d = parser.parse(in);
+                    while (d != null) {
+                        parsed.add(d);
+                        d = parser.parse(in);
+                    }
+                    assertFalse(in.hasRemaining());
+                }
+                assertEquals(Arrays.asList(datagrams), parsed);
+                assertFalse(parser.isPending());
+            }
+        } catch (DatagramSyntacticException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Test that a wrong field is detected once its datagram arrives and the parser
+     * discards it and starts over
+     */
+    @Test
+    public void parser_syntactic_error_test() {
+        DatagramParser parser = new DatagramParser();
+        try {
+            parser.parse(ByteBuffer.wrap("DICE ".getBytes()));
+            assertNull(parser.parse(ByteBuffer.wrap(new byte[]{0, 0, 0, 1, ' ', '7'})));
+            parser.parse(ByteBuffer.wrap(" 1 1 1 1".getBytes()));
+            fail("Dice 7 accepted");
+        } catch (DatagramSyntacticException e) {
+            assertEquals("Dices must be between 1-6", e.getMessage());
+        }
+        try {
+            assertFalse(parser.isPending());
+            assertEquals(new Datagram.Builder().withType(Commands.EXIT).build(),
+                    parser.parse(ByteBuffer.wrap("EXIT".getBytes())));
+        } catch (DatagramSyntacticException e) {
+            fail(e.getMessage());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 import Exceptions.RollLimitOverpassedException;
-import Model.Dice;
 import Model.Dices;
+import Model.RandomService;
 import org.junit.Test;
+import utils.DicesState;
+import utils.DiceHand;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
@@ -24,10 +26,110 @@ public class DicesTest {
        }
     }
 
+    @Test
+    public void packed_hand_test() {
+        Dices dices = new Dices();
+        try {
+            dices.rollDices();
+        } catch (RollLimitOverpassedException e) {
+            fail(e.getMessage());
+        }
+        int hand = dices.getHand();
+        assertEquals(5, DiceHand.size(hand));
+        for (int i = 0; i < dices.size(); i++) {
+            assertEquals(dices.getValue(i), DiceHand.get(hand, i));
+        }
+
+        int positions = DiceHand.of(2, 5);
+        assertEquals(2, DiceHand.size(positions));
+        assertEquals(7, DiceHand.sum(positions));
+        assertEquals(positions, DiceHand.fromList(DiceHand.toList(positions)));
+        assertEquals("2 5", DiceHand.toString(positions));
+    }
+
 
 
 
 
 
 
+
+    @Test
+    public void seeded_rolls_test() {
+        RandomService first = RandomService.seeded(42);
+        RandomService second = RandomService.seeded(42);
+        int[] counts = new int[7];
+        for (int i = 0; i < 1000; i++) {
+            int hand = first.rollDices();
+            assertEquals(hand, second.rollDices());
+            assertEquals(first.flipCoin(), second.flipCoin());
+            assertEquals(5, DiceHand.size(hand));
+            for (int j = 0; j < DiceHand.size(hand); j++) {
+                counts[DiceHand.get(hand, j)]++;
+            }
+        }
+        assertEquals(0, counts[0]);
+        for (int value = 1; value <= 6; value++) {
+            assertTrue(counts[value] > 700);
+        }
+    }
+
+    @Test
+    public void score_table_test() {
+        for (int code = 0; code < 7776; code++) {
+            final long roll = code;
+            Dices dices = new Dices();
+            try {
+                dices.rollDices(new RandomService() {
+                    @Override
+                    public long nextLong() {
+                        return roll;
+                    }
+                });
+            } catch (RollLimitOverpassedException e) {
+                fail(e.getMessage());
+            }
+            boolean[] found = new boolean[7];
+            int sum = 0;
+            for (int i = 0; i < dices.size(); i++) {
+                found[dices.getValue(i)] = true;
+                sum += dices.getValue(i);
+            }
+            DicesState expected = !found[6] ? DicesState.NONE : !found[5] ? DicesState.SHIP
+                    : !found[4] ? DicesState.CAPTAIN : DicesState.CREW;
+            int score = expected == DicesState.CREW ? sum - 15 : 0;
+            assertEquals(score, dices.getScore());
+            assertEquals(expected, dices.getState());
+            assertEquals(score, dices.getScore());
+            int taken = 0;
+            for (int i = 0; i < dices.size(); i++) {
+                if (dices.isTaken(i)) {
+                    taken++;
+                }
+            }
+            assertEquals(expected.ordinal(), taken);
+        }
+    }
+
+    @Test
+    public void reset_test() {
+        Dices dices = new Dices();
+        try {
+            for (int i = 0; i < 3; i++) {
+                dices.rollDices();
+                dices.getScore();
+            }
+        } catch (RollLimitOverpassedException e) {
+            fail(e.getMessage());
+        }
+        assertFalse(dices.canRoll());
+        dices.reset();
+        assertTrue(dices.canRoll());
+        assertEquals(DicesState.NONE, dices.getState());
+        assertEquals(0, dices.getScore());
+        for (int i = 0; i < dices.size(); i++) {
+            assertEquals(0, dices.getValue(i));
+            assertFalse(dices.isTaken(i));
+        }
+    }
 }
@@ -0,0 +1,70 @@
+import Exceptions.ActionNotAllowedException;
+import Model.GameManager;
+import Model.GameManager1p;
+import Model.GameManager2p;
+import Model.GameState;
+import java.io.IOException;
+import org.junit.Test;
+import utils.Commands;
+import utils.Datagram;
+import utils.DatagramSink;
+import utils.ParamNames;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class GameManagerTest {
+
+    private static final DatagramSink NOTHING_EXPECTED = d -> fail("Nothing should be emitted: " + d.getType());
+
+    @Test
+    public void take_before_start_rejected() {
+        GameManager manager = new GameManager1p(-20);
+        Datagram d = new Datagram.Builder()
+                .withType(Commands.TAKE)
+                .addParam(ParamNames.ID, -20)
+                .addHand(ParamNames.DICES, 0)
+                .build();
+        try {
+            manager.executeAction(d, NOTHING_EXPECTED);
+            fail("Expected error: Taking not allowed here");
+        } catch (ActionNotAllowedException e) {
+            assertThat(e.getMessage(), is("Taking not allowed here"));
+            assertThat(manager.getState(), is(GameState.WAITING));
+        } catch (IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void server_command_rejected() {
+        GameManager manager = new GameManager2p();
+        Datagram d = new Datagram.Builder()
+                .withType(Commands.CASH)
+                .addParam(ParamNames.COINS, 10)
+                .build();
+        try {
+            ((GameManager2p) manager).executeAction(d, 0, NOTHING_EXPECTED);
+            fail("Expected error: Command not allowed here");
+        } catch (ActionNotAllowedException e) {
+            assertThat(e.getMessage(), is("Command not allowed here"));
+        } catch (IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void error_allowed_at_any_state() {
+        GameManager manager = new GameManager1p(-21);
+        Datagram d = new Datagram.Builder()
+                .withType(Commands.ERRO)
+                .addParam(ParamNames.MESSAGE, "Client error")
+                .build();
+        try {
+            manager.executeAction(d, NOTHING_EXPECTED);
+        } catch (ActionNotAllowedException | IOException e) {
+            fail(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+import Model.GemLedger;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GemLedgerTest {
+
+    @Test
+    public void snapshot_and_replay_test() {
+        final int players = 100;
+        final int games = 5000;
+        try {
+            Path directory = Files.createTempDirectory("ledger");
+            int[] gems = new int[players];
+            int loots = 0;
+            try (GemLedger ledger = new GemLedger(directory, 1000)) {
+                for (int id = 0; id < players; id++) {
+                    gems[id] = 10;
+                    ledger.append(GemLedger.OPEN, id, 10);
+                }
+                for (int game = 0; game < games; game++) {
+                    int id = (game * 37) % players;
+                    ledger.append(GemLedger.BET, id, 1);
+                    gems[id]--;
+                    if (game % 3 == 0) {
+                        ledger.append(GemLedger.LOOT, id, 2);
+                        gems[id] += 2;
+                        loots++;
+                    }
+                }
+                ledger.sync();
+            }
+            assertTrue(Files.exists(directory.resolve("gems.snapshot")));
+            AtomicInteger audited = new AtomicInteger();
+            for (Path file : Files.newDirectoryStream(directory, "gems.*.log")) {
+                GemLedger.read(file, (seq, kind, id, amount) -> {
+                    if (kind == GemLedger.LOOT) {
+                        audited.incrementAndGet();
+                    }
+                });
+            }
+            GemLedger.read(directory.resolve("gems.log"), (seq, kind, id, amount) -> {
+                if (kind == GemLedger.LOOT) {
+                    audited.incrementAndGet();
+                }
+            });
+            assertEquals(loots, audited.get());
+            try (GemLedger ledger = new GemLedger(directory, 1000)) {
+                for (int id = 0; id < players; id++) {
+                    assertEquals(gems[id], ledger.balance(id));
+                }
+                assertEquals(GemLedger.ABSENT, ledger.balance(players));
+            }
+        } catch (IOException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test that the balances are right while the changes are merged into the snapshots
+     * and dropped from memory, with IDs of any sign
+     */
+    @Test
+    public void balance_across_snapshots_test() {
+        final int players = 300;
+        try {
+            Path directory = Files.createTempDirectory("ledger");
+            int[] gems = new int[players];
+            try (GemLedger ledger = new GemLedger(directory, 50)) {
+                for (int round = 0; round < 20; round++) {
+                    for (int i = round % 3; i < players; i += 3) {
+                        int id = i * 7919 - players * 4000;
+                        if (gems[i] == 0) {
+                            gems[i] = 20;
+                            ledger.append(GemLedger.OPEN, id, 20);
+                        }
+                        ledger.append(GemLedger.BET, id, 2);
+                        ledger.append(GemLedger.LOOT, id, 1 + i % 4);
+                        gems[i] += i % 4 - 1;
+                    }
+                    if (round % 2 == 0) {
+                        ledger.sync();
+                    }
+                    for (int i = 0; i < players; i++) {
+                        int id = i * 7919 - players * 4000;
+                        assertEquals(gems[i] == 0 ? GemLedger.ABSENT : gems[i], ledger.balance(id));
+                    }
+                }
+            }
+            try (GemLedger ledger = new GemLedger(directory, 50)) {
+                for (int i = 0; i < players; i++) {
+                    assertEquals(gems[i], ledger.balance(i * 7919 - players * 4000));
+                }
+            }
+        } catch (IOException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    @Test
+    public void torn_record_test() {
+        try {
+            Path directory = Files.createTempDirectory("ledger");
+            try (GemLedger ledger = new GemLedger(directory, 1000)) {
+                ledger.append(GemLedger.OPEN, 7, 10);
+                ledger.append(GemLedger.BET, 7, 1);
+            }
+            try (OutputStream out = Files.newOutputStream(directory.resolve("gems.log"), StandardOpenOption.APPEND)) {
+                out.write(new byte[] {0, 0, 0, 0, 0, 0, 0, 3, 0, 0, 0, 2, 0, 0});
+            }
+            try (GemLedger ledger = new GemLedger(directory, 1000)) {
+                assertEquals(9, ledger.balance(7));
+                ledger.append(GemLedger.LOOT, 7, 2);
+            }
+            assertEquals(3 * 24, Files.size(directory.resolve("gems.log")));
+            try (GemLedger ledger = new GemLedger(directory, 1000)) {
+                assertEquals(11, ledger.balance(7));
+            }
+        } catch (IOException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    @Test
+    public void audit_retention_test() {
+        try {
+            Path directory = Files.createTempDirectory("ledger");
+            try (GemLedger ledger = new GemLedger(directory, 100, 2)) {
+                for (int i = 0; i < 1000; i++) {
+                    ledger.append(GemLedger.OPEN, i, 10);
+                    if (i % 50 == 0) {
+                        ledger.sync();
+                    }
+                }
+                ledger.sync();
+            }
+            int audits = 0;
+            for (Path file : Files.newDirectoryStream(directory, "gems.*.log")) {
+                audits++;
+            }
+            assertEquals(2, audits);
+            try (GemLedger ledger = new GemLedger(directory, 100, 2)) {
+                for (int i = 0; i < 1000; i++) {
+                    assertEquals(10, ledger.balance(i));
+                }
+            }
+        } catch (IOException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    @Test
+    public void append_after_close_test() {
+        try {
+            Path directory = Files.createTempDirectory("ledger");
+            GemLedger ledger = new GemLedger(directory, 1000);
+            ledger.append(GemLedger.OPEN, 7, 10);
+            ledger.close();
+            try {
+                ledger.append(GemLedger.BET, 7, 1);
+                fail("Transaction appended to a closed ledger");
+            } catch (IOException ex) {
+                assertEquals("The ledger is closed", ex.getMessage());
+            }
+            try (GemLedger reopened = new GemLedger(directory, 1000)) {
+                assertEquals(10, reopened.balance(7));
+            }
+        } catch (IOException ex) {
+            fail(ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import Exceptions.BetException;
+import Model.GemStore;
+import Model.Player;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GemStoreTest {
+
+    @Test
+    public void reopen_test() {
+        final int players = 200000;
+        try {
+            File file = File.createTempFile("gems", ".db");
+            file.delete();
+            file.deleteOnExit();
+            try (GemStore store = new GemStore(file.toPath())) {
+                for (int id = 0; id < players; id++) {
+                    store.put(id * 7 - players, id % 50);
+                }
+                store.put(-players, 42);
+                assertEquals(players, store.size());
+            }
+            try (GemStore store = new GemStore(file.toPath())) {
+                assertEquals(players, store.size());
+                assertEquals(42, store.get(-players));
+                for (int id = 1; id < players; id++) {
+                    assertEquals(id % 50, store.get(id * 7 - players));
+                }
+                assertEquals(GemStore.ABSENT, store.get(players * 7));
+            }
+        } catch (IOException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test that the writes made while the table grows in the background are kept,
+     * with the file forced periodically meanwhile
+     */
+    @Test
+    public void grow_while_writing_test() {
+        final int players = 300000;
+        try {
+            File file = File.createTempFile("gems", ".db");
+            file.delete();
+            file.deleteOnExit();
+            try (GemStore store = new GemStore(file.toPath(), 1)) {
+                for (int id = 0; id < players; id++) {
+                    store.put(id, id);
+                    store.put(id / 2, -id);
+                }
+            }
+            try (GemStore store = new GemStore(file.toPath())) {
+                assertEquals(players, store.size());
+                for (int id = 0; id < players; id++) {
+                    int last = id < players / 2 ? Math.min(2 * id + 1, players - 1) : id;
+                    assertEquals(id < players / 2 ? -last : id, store.get(id));
+                }
+            }
+        } catch (IOException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    @Test
+    public void player_gems_test() {
+        try {
+            File file = File.createTempFile("gems", ".db");
+            file.delete();
+            file.deleteOnExit();
+            try (GemStore store = new GemStore(file.toPath())) {
+                Player player = new Player(5);
+                player.setGemStore(store);
+                assertEquals(Player.INITIAL_GEMS, store.get(5));
+                player.bet(Player.INITIAL_BET);
+                assertEquals(Player.INITIAL_GEMS - Player.INITIAL_BET, store.get(5));
+                player.winGems(4);
+                assertEquals(Player.INITIAL_GEMS - Player.INITIAL_BET + 4, store.get(5));
+            }
+        } catch (IOException | BetException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    @Test
+    public void not_gem_file_test() {
+        try {
+            File file = File.createTempFile("gems", ".db");
+            file.deleteOnExit();
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(new byte[64]);
+            }
+            try {
+                new GemStore(file.toPath()).close();
+                fail("Not a gem file opened");
+            } catch (IOException ex) {
+            }
+        } catch (IOException ex) {
+            fail(ex.getMessage());
+        }
+    }
+}
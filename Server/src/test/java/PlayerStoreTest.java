@@ -0,0 +1,36 @@
+import Model.PlayerStore;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlayerStoreTest {
+
+    @Test
+    public void save_and_load_test() {
+        try {
+            File file = File.createTempFile("players", ".evicted");
+            file.deleteOnExit();
+            try (PlayerStore store = new PlayerStore(file.toPath())) {
+                for (int id = 0; id < 5000; id++) {
+                    store.save(id * 31, id);
+                }
+                store.save(31, 99);
+                assertEquals(5000, store.size());
+                assertEquals(5000L * 8, file.length());
+                assertEquals(99, store.load(31));
+                assertEquals(4999, store.load(4999 * 31));
+                assertTrue(store.contains(62));
+                assertFalse(store.contains(1));
+                try {
+                    store.load(1);
+                    fail("Player not evicted loaded");
+                } catch (IOException ex) {
+                }
+            }
+        } catch (IOException ex) {
+            fail(ex.getMessage());
+        }
+    }
+}
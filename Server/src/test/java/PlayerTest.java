@@ -1,6 +1,8 @@
 import Exceptions.BetException;
 import Model.Dices;
 import Model.Player;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -32,4 +34,54 @@ public class PlayerTest {
            e.printStackTrace();
         }
     }
+
+    @Test
+    public void concurrent_claim_test() {
+        final Player player = new Player(-11);
+        final AtomicInteger claimed = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                Object session = new Object();
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < 10000; i++) {
+                    if (player.claim(session)) {
+                        if (claimed.incrementAndGet() != 1) {
+                            claimed.set(100);
+                        }
+                        claimed.decrementAndGet();
+                        assertTrue(player.release(session));
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(0, claimed.get());
+        assertFalse(player.isConnected());
+    }
+
+    @Test
+    public void release_by_other_session_test() {
+        Player player = new Player(-12);
+        Object first = new Object();
+        assertTrue(player.claim(first));
+        assertFalse(player.claim(new Object()));
+        assertFalse(player.release(new Object()));
+        assertTrue(player.isConnected());
+        assertTrue(player.release(first));
+        assertFalse(player.isConnected());
+    }
 }
@@ -0,0 +1,32 @@
+import Model.Player;
+import Model.PlayersList;
+
+/**
+ * Manual benchmark of the player registry (not run with the tests): time per insert
+ * and per lookup of 2 million players in a registry apart from the server's one
+ * Run with: java -cp target/classes:target/test-classes PlayersListBenchmark
+ */
+public class PlayersListBenchmark {
+
+    public static void main(String[] args) {
+        final int base = 1000000000;
+        final int ids = 2000000;
+        PlayersList list = new PlayersList();
+        long start = System.nanoTime();
+        for (int i = 0; i < ids; i++) {
+            list.getPlayer(base + i);
+        }
+        long insert = System.nanoTime() - start;
+        long checksum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < ids; i++) {
+            checksum += list.getPlayer(base + (int) ((i * 7919L) % ids)).getGems();
+        }
+        long lookup = System.nanoTime() - start;
+        if (checksum != (long) ids * Player.INITIAL_GEMS) {
+            throw new IllegalStateException("Players lost: " + checksum);
+        }
+        System.out.println("player registry: " + (double) insert / ids + " ns per insert, "
+                + (double) lookup / ids + " ns per lookup (" + list.size() + " players)");
+    }
+}
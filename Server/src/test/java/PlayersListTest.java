@@ -0,0 +1,162 @@
+import Model.Player;
+import Model.PlayerStore;
+import Model.PlayersList;
+import Exceptions.BetException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlayersListTest {
+
+    @Test
+    public void concurrent_get_or_create_test() {
+        final int base = 2000000000;
+        final int ids = 5000;
+        final Player[][] found = new Player[4][ids];
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[found.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < ids; i++) {
+                    found[thread][i] = PlayersList.getInstance().getPlayer(base + i);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            fail(ex.getMessage());
+        }
+        for (int i = 0; i < ids; i++) {
+            assertEquals(base + i, found[0][i].getId());
+            for (int t = 1; t < found.length; t++) {
+                assertSame(found[0][i], found[t][i]);
+            }
+            assertSame(found[0][i], PlayersList.getInstance().findPlayer(base + i));
+        }
+        assertNull(PlayersList.getInstance().findPlayer(base - 1));
+    }
+
+    @Test
+    public void evict_and_load_test() {
+        final int id = -2000000000;
+        PlayersList list = new PlayersList();
+        try {
+            File file = File.createTempFile("players", ".evicted");
+            file.deleteOnExit();
+            list.configureEviction(0, 0, new PlayerStore(file.toPath()));
+            Object game = new Object();
+            Player player = list.claimPlayer(id, game);
+            player.bet(3);
+            assertFalse(list.evict(id));
+            assertTrue(player.release(game));
+            assertTrue(list.evict(id));
+            assertNull(list.findPlayer(id));
+            Player loaded = list.claimPlayer(id, game);
+            assertNotSame(player, loaded);
+            assertSame(loaded, list.findPlayer(id));
+            assertEquals(Player.INITIAL_GEMS - 3, loaded.getGems());
+            assertNull(list.claimPlayer(id, new Object()));
+            assertTrue(loaded.release(game));
+        } catch (IOException | BetException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test that the sweeper moves the oldest players to disk when there are too many
+     * and that they are loaded again with their gems
+     */
+    @Test
+    public void sweep_test() {
+        PlayersList list = new PlayersList();
+        try {
+            File file = File.createTempFile("players", ".evicted");
+            file.deleteOnExit();
+            PlayerStore store = new PlayerStore(file.toPath());
+            list.configureEviction(0, 4, store);
+            for (int id = 1; id <= 10; id++) {
+                list.getPlayer(id).winGems(id);
+            }
+            for (int i = 0; i < 100 && list.size() > 4; i++) {
+                Thread.sleep(50);
+            }
+            assertTrue(list.size() <= 4);
+            assertTrue(store.size() >= 6);
+            Object game = new Object();
+            for (int id = 1; id <= 10; id++) {
+                Player player = list.claimPlayer(id, game);
+                assertEquals(Player.INITIAL_GEMS + id, player.getGems());
+                assertTrue(player.release(game));
+            }
+        } catch (IOException | InterruptedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test that the threads asking at the same time for an evicted player get the
+     * same player, loaded once with its gems
+     */
+    @Test
+    public void concurrent_load_test() {
+        final int ids = 200;
+        final PlayersList list = new PlayersList();
+        final Player[][] found = new Player[4][ids];
+        try {
+            File file = File.createTempFile("players", ".evicted");
+            file.deleteOnExit();
+            list.configureEviction(0, 0, new PlayerStore(file.toPath()));
+            for (int id = 1; id <= ids; id++) {
+                list.getPlayer(id).winGems(id);
+                assertTrue(list.evict(id));
+            }
+        } catch (IOException ex) {
+            fail(ex.getMessage());
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[found.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < ids; i++) {
+                    found[thread][i] = list.getPlayer(i + 1);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            fail(ex.getMessage());
+        }
+        for (int i = 0; i < ids; i++) {
+            assertEquals(Player.INITIAL_GEMS + i + 1, found[0][i].getGems());
+            for (int t = 1; t < found.length; t++) {
+                assertSame(found[0][i], found[t][i]);
+            }
+        }
+        assertEquals(ids, list.size());
+    }
+}
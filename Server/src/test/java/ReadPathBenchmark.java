@@ -0,0 +1,66 @@
+import utils.ComUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Manual benchmark of the read path (not run with the tests): time and bytes allocated
+ * reading the fields of a DICE datagram once the JIT has warmed up. The allocated bytes
+ * are only measured on JVMs giving them by thread
+ * Run with: java -cp target/classes:target/test-classes ReadPathBenchmark
+ */
+public class ReadPathBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ComUtils writer = new ComUtils(new ByteArrayInputStream(new byte[0]), bos);
+        writer.write_string("DICE");
+        writer.write_char(' ');
+        writer.write_int32(7);
+        for (int i = 0; i < 5; i++) {
+            writer.write_char(' ');
+            writer.write_char('6');
+        }
+
+        ByteArrayInputStream in = new ByteArrayInputStream(bos.toByteArray());
+        ComUtils comUtils = new ComUtils(in, new ByteArrayOutputStream());
+        int checksum = 0;
+        for (int i = 0; i < 200000; i++) {
+            in.reset();
+            checksum += readDice(comUtils);
+        }
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = bean instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) bean : null;
+        long thread = Thread.currentThread().getId();
+        int datagrams = 1000000;
+        long before = allocations == null ? 0 : allocations.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < datagrams; i++) {
+            in.reset();
+            checksum += readDice(comUtils);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.print("read path: " + (elapsed / datagrams) + " ns per DICE datagram");
+        if (allocations != null) {
+            long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+            System.out.print(", " + ((double) allocated / datagrams) + " bytes");
+        }
+        System.out.println(" (" + checksum + ")");
+    }
+
+    private static int readDice(ComUtils comUtils) throws IOException {
+        int sum = comUtils.read_string().length();
+        sum += comUtils.read_char();
+        sum += comUtils.read_int32();
+        for (int i = 0; i < 5; i++) {
+            sum += comUtils.read_char();
+            sum += comUtils.read_char();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,30 @@
+import Model.PlayersList;
+import Model.Simulator;
+import Model.Strategy;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SimulatorTest {
+
+    @Test
+    public void seeded_simulation_test() {
+        Simulator.Report first = Simulator.run(25000, Strategy.OPTIMAL, Strategy.NEVER_PASS, 11);
+        Simulator.Report second = Simulator.run(25000, Strategy.OPTIMAL, Strategy.NEVER_PASS, 11);
+        assertEquals(25000, first.getRounds());
+        assertEquals(first.winRate(), second.winRate(), 0);
+        assertEquals(first.gemFlow(), second.gemFlow(), 0);
+        assertEquals(1, first.winRate() + first.tieRate() + first.lossRate(), 1e-9);
+        assertTrue(first.winMargin() > 0 && first.gemMargin() > 0);
+    }
+
+    /**
+     * Test that the simulated players are not registered in the registry of the server
+     */
+    @Test
+    public void private_registry_test() {
+        int players = PlayersList.getInstance().size();
+        Simulator.run(3 * Simulator.BATCH, Strategy.OPTIMAL, Strategy.OPTIMAL, 5);
+        assertEquals(players, PlayersList.getInstance().size());
+    }
+}
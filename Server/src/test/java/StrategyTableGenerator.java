@@ -0,0 +1,167 @@
+import Model.StrategyTable;
+import utils.DataAssembler;
+import utils.DicesState;
+
+/**
+ * Generator of the tables of StrategyTable (not run with the tests): solves the turn
+ * of the server as a Markov decision process and prints the decisions and the win
+ * chances as the Java arrays shipped in StrategyTable. The ship, captain and crew
+ * are always taken as soon as they are rolled, so the only decision is whether to
+ * pass or to roll the cargo again. A tie counts as half a win and, when playing
+ * first, the opponent is assumed to play optimally too
+ * Run with: java -cp target/classes:target/test-classes StrategyTableGenerator
+ */
+public class StrategyTableGenerator {
+
+    private static final int MAX_SCORE = 12;
+    private static final double EPSILON = 1e-9;
+    private static final DicesState[] STATES = DicesState.values();
+    private static final int NONE = DicesState.NONE.ordinal();
+    private static final int CREW = DicesState.CREW.ordinal();
+    private static final int KEYS = CREW + MAX_SCORE + 1;
+    private static final int FIRST = MAX_SCORE + 1;
+
+    private final double[][] roll = new double[CREW][KEYS];
+    private final double[] cargo = new double[MAX_SCORE + 1];
+    private final int[] rollAgain = new int[(FIRST + 1) * DataAssembler.MAX_ROLLS];
+    private final double[] win = new double[FIRST + 1];
+
+    public static void main(String[] args) {
+        StrategyTableGenerator generator = new StrategyTableGenerator();
+        StringBuilder source = new StringBuilder("    private static final int[] ROLL_AGAIN = {\n");
+        for (int target = 0; target <= FIRST; target++) {
+            source.append("       ");
+            for (int rollsLeft = 0; rollsLeft < DataAssembler.MAX_ROLLS; rollsLeft++) {
+                source.append(String.format(" 0x%04x,", generator.rollAgain[target * DataAssembler.MAX_ROLLS + rollsLeft]));
+            }
+            source.append(target == FIRST ? " // NO_TARGET\n" : " // " + target + "\n");
+        }
+        source.append("    };\n\n    private static final double[] WIN = {\n");
+        for (int target = 0; target <= FIRST; target++) {
+            source.append("        ").append(generator.win[target]).append(",\n");
+        }
+        source.append("    };");
+        System.out.println(source);
+    }
+
+    /**
+     * Solves the decisions against every target
+     */
+    public StrategyTableGenerator() {
+        for (int state = NONE; state < CREW; state++) {
+            rollDistribution(state, roll[state]);
+        }
+        for (int first = 1; first <= 6; first++) {
+            for (int second = 1; second <= 6; second++) {
+                cargo[first + second] += 1.0 / 36;
+            }
+        }
+        double[] utility = new double[MAX_SCORE + 1];
+        for (int target = 0; target <= MAX_SCORE; target++) {
+            for (int score = 0; score <= MAX_SCORE; score++) {
+                utility[score] = score > target ? 1 : score == target ? 0.5 : 0;
+            }
+            win[target] = solve(utility, target);
+        }
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            utility[score] = 1 - win[score];
+        }
+        win[FIRST] = solve(utility, FIRST);
+    }
+
+    /**
+     * Same decision as StrategyTable.rollAgain, computed by this generator
+     */
+    public boolean rollAgain(int target, int rollsLeft, int cargo) {
+        if (rollsLeft <= 0) {
+            return false;
+        }
+        return (rollAgain[index(target) * DataAssembler.MAX_ROLLS + rollsLeft] & (1 << cargo)) != 0;
+    }
+
+    /**
+     * Same chances as StrategyTable.winChance, computed by this generator
+     */
+    public double winChance(int target) {
+        return win[index(target)];
+    }
+
+    private static int index(int target) {
+        return target == StrategyTable.NO_TARGET ? FIRST : Math.min(Math.max(target, 0), MAX_SCORE);
+    }
+
+    /**
+     * Solves the turn backwards from the last roll
+     * @param utility value of finishing with every score
+     * @param target index of the target, where the decisions are stored
+     * @return value of the turn before the first roll
+     */
+    private double solve(double[] utility, int target) {
+        double[] value = new double[KEYS];
+        for (int key = 0; key < KEYS; key++) {
+            value[key] = utility[key > CREW ? key - CREW : 0];
+        }
+        for (int rollsLeft = 1; rollsLeft < DataAssembler.MAX_ROLLS; rollsLeft++) {
+            double[] next = new double[KEYS];
+            for (int state = NONE; state < CREW; state++) {
+                next[state] = expected(roll[state], value);
+            }
+            double again = 0;
+            for (int sum = 2; sum <= MAX_SCORE; sum++) {
+                again += cargo[sum] * value[CREW + sum];
+            }
+            int decisions = 0;
+            for (int sum = 2; sum <= MAX_SCORE; sum++) {
+                if (again > utility[sum] + EPSILON) {
+                    decisions |= 1 << sum;
+                    next[CREW + sum] = again;
+                }
+                else {
+                    next[CREW + sum] = utility[sum];
+                }
+            }
+            rollAgain[target * DataAssembler.MAX_ROLLS + rollsLeft] = decisions;
+            value = next;
+        }
+        return expected(roll[NONE], value);
+    }
+
+    private static double expected(double[] distribution, double[] value) {
+        double result = 0;
+        for (int key = 0; key < KEYS; key++) {
+            result += distribution[key] * value[key];
+        }
+        return result;
+    }
+
+    /**
+     * Fills the chances of every result of rolling the dices not taken at a state:
+     * the state reached or, if the crew is completed, the cargo
+     * @param state state before rolling
+     * @param distribution chances indexed by state ordinal or CREW + cargo
+     */
+    private static void rollDistribution(int state, double[] distribution) {
+        int dices = DataAssembler.NUM_DICES - state;
+        int rolls = 1;
+        for (int i = 0; i < dices; i++) {
+            rolls *= 6;
+        }
+        for (int code = 0; code < rolls; code++) {
+            int rest = code;
+            int sum = 0;
+            boolean[] found = new boolean[7];
+            for (int i = 0; i < dices; i++) {
+                int value = rest % 6 + 1;
+                found[value] = true;
+                sum += value;
+                rest /= 6;
+            }
+            int reached = state;
+            while (reached < CREW && found[STATES[reached].nextValue()]) {
+                sum -= STATES[reached].nextValue();
+                reached++;
+            }
+            distribution[reached == CREW ? CREW + sum : reached] += 1.0 / rolls;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+import Model.StrategyTable;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StrategyTableTest {
+
+    @Test
+    public void second_player_decisions_test() {
+        // Any crew beats 0 points, there is nothing to win rolling again
+        assertFalse(StrategyTable.rollAgain(0, 2, 2));
+        // 12 cannot be beaten, a tie is better than rolling
+        assertFalse(StrategyTable.rollAgain(12, 1, 12));
+        // Losing for sure against rolling with some chances
+        assertTrue(StrategyTable.rollAgain(10, 1, 6));
+        assertFalse(StrategyTable.rollAgain(10, 0, 6));
+    }
+
+    @Test
+    public void win_chances_test() {
+        for (int target = 2; target < 12; target++) {
+            assertTrue(StrategyTable.winChance(target) > StrategyTable.winChance(target + 1));
+        }
+        double first = StrategyTable.winChance(StrategyTable.NO_TARGET);
+        assertTrue(first > 0.4 && first < 0.5);
+    }
+
+    /**
+     * Test that the shipped tables are the ones solved by StrategyTableGenerator
+     */
+    @Test
+    public void shipped_table_test() {
+        StrategyTableGenerator generator = new StrategyTableGenerator();
+        for (int target = StrategyTable.NO_TARGET; target <= 12; target++) {
+            for (int rollsLeft = 0; rollsLeft <= 2; rollsLeft++) {
+                for (int cargo = 2; cargo <= 12; cargo++) {
+                    assertEquals(generator.rollAgain(target, rollsLeft, cargo),
+                            StrategyTable.rollAgain(target, rollsLeft, cargo));
+                }
+            }
+            assertEquals(generator.winChance(target), StrategyTable.winChance(target), 0);
+        }
+    }
+}